@@ -0,0 +1,72 @@
+package igpp.util.benchmark;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import igpp.util.Date;
+
+/**
+ * Benchmarks for parsing and formatting with {@link Date}.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateBenchmark {
+	@Param({"2005-03-15T12:30:45.123Z", "2005-074T12:30:45.123", "2005-03-15", "2005"})
+	public String mTime;
+	
+	@Param({"false", "true"})
+	public boolean mCeil;
+	
+	Calendar mCalendar;
+	long mTick;
+	
+	@Setup
+	public void setup()
+	{
+		mCalendar = Date.parseISO8601(mTime, mCeil);
+		mTick = mCalendar.getTimeInMillis();
+	}
+	
+	@Benchmark
+	public Calendar parseISO8601()
+	{
+		return Date.parseISO8601(mTime, mCeil);
+	}
+	
+	@Benchmark
+	public long parseISO8601Millis()
+	{
+		return Date.parseISO8601Millis(mTime, mCeil);
+	}
+	
+	@Benchmark
+	public String getDateString()
+	{
+		return Date.getDateString(mTick);
+	}
+	
+	@Benchmark
+	public String getDateStringPattern()
+	{
+		return Date.getDateString(mCalendar, Date.DFS);
+	}
+}
@@ -0,0 +1,89 @@
+package igpp.util.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import igpp.util.Digest;
+
+/**
+ * Benchmarks for {@link Digest#digestFile(String, String)} over files of 1 KB to 1 GB.
+ * The method "MD5+SHA-256" creates both digests in one pass with
+ * {@link Digest#digestFile(String[], String)}.
+ * The file is created once per trial in the directory named by the system property
+ * "benchmark.dir" (default is the system temporary directory) and removed afterwards.
+ * Once written the file is likely in the page cache, so this measures the
+ * digest and copy cost rather than the storage.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DigestBenchmark {
+	@Param({"1024", "1048576", "104857600", "1073741824"})
+	public long mSize;
+	
+	@Param({"MD5", "SHA-256", "MD5+SHA-256"})
+	public String mMethod;
+	
+	String[] mMethods;
+	File mFile;
+	
+	@Setup(Level.Trial)
+	public void setup()
+		throws IOException
+	{
+		mMethods = mMethod.split("\\+");
+		
+		String dir = System.getProperty("benchmark.dir", System.getProperty("java.io.tmpdir"));
+		mFile = File.createTempFile("digest", ".dat", new File(dir));
+		
+		byte[] buffer = new byte[1024 * 1024];
+		new Random(mSize).nextBytes(buffer);
+		
+		FileOutputStream output = new FileOutputStream(mFile);
+		long remain = mSize;
+		while(remain > 0) {
+			int n = (int) Math.min(remain, buffer.length);
+			output.write(buffer, 0, n);
+			remain -= n;
+		}
+		output.close();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		if(mFile != null) mFile.delete();
+	}
+	
+	@Benchmark
+	public Object digestFile()
+		throws Exception
+	{
+		if(mMethods.length > 1) return Digest.digestFile(mMethods, mFile.getPath());
+		
+		return Digest.digestFile(mMethod, mFile.getPath());
+	}
+}
@@ -0,0 +1,69 @@
+package igpp.util.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import igpp.util.MultiTime;
+
+/**
+ * Benchmarks for {@link MultiTime#convert(String, String)} and {@link MultiTime#format(String)}.
+ * Each pattern name is paired with a sample time string in that format.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiTimeBenchmark {
+	@Param({"PDS", "BINARY", "DFS", "DOY", "AMERDATE"})
+	public String mName;
+	
+	static final String[][] SAMPLE = {
+		{"PDS", "1989-01-19T11:45:30.234"},
+		{"BINARY", "727443930.234"},
+		{"DFS", "1989-JAN-19 11:45:30.234"},
+		{"DOY", "1989 019 11:45:30.234"},
+		{"AMERDATE", "01/19/89 11:45:30.234"},
+	};
+	
+	String mPattern;
+	String mSample;
+	MultiTime mTime = new MultiTime();
+	
+	@Setup
+	public void setup()
+	{
+		mPattern = MultiTime.findSpec(mName);
+		for(String[] item : SAMPLE) {
+			if(item[0].equals(mName)) mSample = item[1];
+		}
+		if( ! mTime.convert(mPattern, mSample)) throw new IllegalStateException("Unable to parse: " + mSample);
+	}
+	
+	@Benchmark
+	public boolean convert()
+	{
+		return mTime.convert(mPattern, mSample);
+	}
+	
+	@Benchmark
+	public String format()
+	{
+		return mTime.format(mPattern);
+	}
+}
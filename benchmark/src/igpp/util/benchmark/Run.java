@@ -0,0 +1,29 @@
+package igpp.util.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks. Accepts the standard JMH command line options.
+ * Unless a result format is given with -rf the results are written
+ * as JSON to the file jmh-result.json (or the file given with -rff).
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class Run {
+	public static void main(String[] args)
+		throws Exception
+	{
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+		
+		if( ! cmd.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+		if( ! cmd.getResult().hasValue()) options.result("jmh-result.json");
+		
+		new Runner(options.build()).run();
+	}
+}
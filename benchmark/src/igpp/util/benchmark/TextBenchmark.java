@@ -0,0 +1,66 @@
+package igpp.util.benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import igpp.util.Text;
+
+/**
+ * Benchmarks for {@link Text#uniqueList(ArrayList, boolean)} and {@link Text#intersection(ArrayList, ArrayList)}
+ * with 10^3 to 10^6 elements. About half of the values in each list are duplicates
+ * and the two lists share about half of their values.
+ * Each measurement is a single call since the larger sizes take a long time.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class TextBenchmark {
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int mCount;
+	
+	ArrayList<String> mListA;
+	ArrayList<String> mListB;
+	
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(mCount);
+		mListA = new ArrayList<String>(mCount);
+		mListB = new ArrayList<String>(mCount);
+		for(int i = 0; i < mCount; i++) {
+			mListA.add("item" + random.nextInt(mCount / 2 + 1));
+			mListB.add("item" + (mCount / 4 + random.nextInt(mCount / 2 + 1)));
+		}
+	}
+	
+	@Benchmark
+	public ArrayList<String> uniqueList()
+	{
+		return Text.uniqueList(mListA, true);
+	}
+	
+	@Benchmark
+	public ArrayList<String> intersection()
+	{
+		return Text.intersection(mListA, mListB);
+	}
+}
@@ -0,0 +1,60 @@
+package igpp.util.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import igpp.util.VariableList;
+
+/**
+ * Benchmarks for {@link VariableList#replaceVariable(String)} on large templates.
+ * The template has a number of references to variables separated by plain text.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariableListBenchmark {
+	@Param({"100", "10000", "100000"})
+	public int mReferences;
+	
+	@Param({"10", "1000"})
+	public int mVariables;
+	
+	VariableList mList;
+	String mTemplate;
+	
+	@Setup
+	public void setup()
+	{
+		mList = new VariableList();
+		for(int i = 0; i < mVariables; i++) mList.findAndSet("var" + i, "value of variable " + i, false);
+		
+		StringBuilder buffer = new StringBuilder();
+		for(int i = 0; i < mReferences; i++) {
+			buffer.append("Some text before $var").append(i % mVariables).append(" and after.\n");
+		}
+		mTemplate = buffer.toString();
+	}
+	
+	@Benchmark
+	public String replaceVariable()
+	{
+		return mList.replaceVariable(mTemplate);
+	}
+}
@@ -8,6 +8,11 @@
 
 set THIS_DIR=%~dp0
 
+:: Usage: digest {method} {phrase}
+::        digest -d {method} {directory} [threads]
+:: Directory mode (-d) writes an md5sum/sha256sum style manifest of every file
+:: in the directory tree to standard output.
+::
 :: Executes tool
 :: The special variable '%*' allows the arguments
 :: to be passed into the executable.
@@ -0,0 +1,410 @@
+package igpp.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Run a command line without waiting for it to finish. The exit status is returned
+ * as a {@link CompletableFuture} and each line of output is passed to a consumer
+ * as it is read. Standard out and standard error go to separate consumers.
+ *<p>
+ * A consumer may be a {@link LineBuffer}. A blocking LineBuffer stops reading from the command
+ * when full, so a command which writes faster than its output is used waits
+ * rather than filling memory. A ring LineBuffer keeps only the last lines.
+ * A LineBuffer is closed when its stream ends, or both streams if it receives both,
+ * so readers know the output is complete.
+ *<p>
+ * If a consumer throws an exception the rest of its stream is read and discarded,
+ * so the command is not held waiting, and the future completes with the exception.
+ *<p>
+ * A command can be stopped with {@link #kill()}, by cancelling the future, or by
+ * setting a timeout. On a timeout the future completes with a {@link TimeoutException}.
+ *<p>
+ * The streams are read by tasks on an executor shared by all commands, so starting a
+ * command does not create threads. Where the Java runtime has virtual threads (Java 21 and later)
+ * each task runs on a virtual thread. Otherwise the tasks run on a pool of daemon threads which
+ * are reused and end after a minute idle. The executor can be replaced with {@link #setExecutor(ExecutorService)}.
+ * It must not limit the number of tasks running at once, since a command can stall when
+ * either of its streams is not read.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class AsyncProcess {
+	/** Time to wait after asking a command to stop before forcing it to stop (milliseconds). */
+	static final long KILL_WAIT = 5000;
+
+	/** Time an idle pool thread is kept (seconds). */
+	static final long KEEP_ALIVE = 60;
+
+	static private ExecutorService mPool = null;
+	static private boolean mOwnPool = false;
+	static private AtomicInteger mActive = new AtomicInteger();
+
+	static private ScheduledExecutorService mTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "AsyncProcess-timer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	String	mCommand;
+	String	mHome;
+	Consumer<String>	mOutput = null;
+	Consumer<String>	mError = null;
+	long	mTimeout = 0;
+
+	volatile java.lang.Process	mProcess = null;
+	CompletableFuture<Integer>	mResult = null;
+	ScheduledFuture<?>	mTimeoutTask = null;
+	volatile boolean	mKilled = false;
+	volatile boolean	mTimedOut = false;
+	AtomicInteger	mPumps = new AtomicInteger();
+	volatile RuntimeException	mFailure = null;	// Thrown by a consumer
+
+	/**
+	 * Create a command to run in the current directory.
+	 *
+	 * @param command   the command line to run.
+	 **/
+	public AsyncProcess(String command)
+	{
+		this(command, null);
+	}
+
+	/**
+	 * Create a command to run with a specified path as the home directory.
+	 * The command line is parsed as in {@link Process#run(String, String)}.
+	 *
+	 * @param command   the command line to run.
+	 * @param home      the path to the home directory in which to run the command. May be null.
+	 **/
+	public AsyncProcess(String command, String home)
+	{
+		mCommand = command;
+		mHome = home;
+	}
+
+	/**
+	 * Set the consumer for lines written to standard out. If null the lines are discarded.
+	 * The consumer is called from one thread at a time.
+	 *
+	 * @param output   the consumer.
+	 **/
+	public void setOutput(Consumer<String> output) { mOutput = output; }
+
+	/**
+	 * Set the consumer for lines written to standard error. If null the lines are discarded.
+	 * The consumer is called from one thread at a time, but not the same thread as
+	 * the consumer for standard out.
+	 *
+	 * @param error   the consumer.
+	 **/
+	public void setError(Consumer<String> error) { mError = error; }
+
+	/**
+	 * Set the longest time the command may run. The default is no limit.
+	 *
+	 * @param timeout   the time in milliseconds. Zero for no limit.
+	 **/
+	public void setTimeout(long timeout)
+	{
+		if(timeout < 0) throw new IllegalArgumentException("Timeout must not be negative");
+		mTimeout = timeout;
+	}
+
+	/**
+	 * Start the command. The future completes when the command has exited and all of its
+	 * output has been passed to the consumers. It completes exceptionally with an
+	 * {@link IOException} if the command could not be started, or a {@link TimeoutException}
+	 * if the timeout passed. If the command is killed it completes with the exit status of the command.
+	 * Cancelling the future kills the command.
+	 *
+	 * @return the future for the exit status.
+	 **/
+	public synchronized CompletableFuture<Integer> start()
+	{
+		if(mResult != null) throw new IllegalStateException("Already started: " + mCommand);
+
+		mResult = new CompletableFuture<Integer>() {
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				boolean cancelled = super.cancel(mayInterruptIfRunning);
+				kill();
+				return cancelled;
+			}
+		};
+
+		File homeDir = null;
+		if(mHome != null) homeDir = new File(mHome);
+
+		try {
+			mProcess = Process.exec(mCommand, homeDir);
+			mProcess.getOutputStream().close();
+		} catch(Exception e) {
+			mResult.completeExceptionally(e);
+			return mResult;
+		}
+
+		mPumps.set(2);
+		try {
+			// A consumer is closed when the last stream passed to it ends
+			AtomicInteger outputOpen = new AtomicInteger(mOutput == mError ? 2 : 1);
+			AtomicInteger errorOpen = (mOutput == mError) ? outputOpen : new AtomicInteger(1);
+
+			ExecutorService pool = getExecutor();
+			pool.execute(new Pump(mProcess.getInputStream(), mOutput, outputOpen));
+			pool.execute(new Pump(mProcess.getErrorStream(), mError, errorOpen));
+		} catch(RuntimeException e) {	// Rejected by the executor
+			mProcess.destroyForcibly();
+			mResult.completeExceptionally(e);
+			return mResult;
+		}
+
+		if(mTimeout > 0) {
+			mTimeoutTask = mTimer.schedule(new Runnable() {
+				public void run() {
+					if( ! isAlive()) return;
+					mTimedOut = true;
+					kill();
+				}
+			}, mTimeout, TimeUnit.MILLISECONDS);
+		}
+
+		return mResult;
+	}
+
+	/**
+	 * Wait for the command to exit, then complete the future. Called by the
+	 * last stream reader to finish, so no thread waits only for the exit.
+	 **/
+	private void finish()
+	{
+		try {
+			int exitValue = mProcess.waitFor();
+			if(mTimeoutTask != null) mTimeoutTask.cancel(false);
+
+			if(mTimedOut) mResult.completeExceptionally(new TimeoutException("Timed out after " + mTimeout + " ms: " + mCommand));
+			else if(mFailure != null) mResult.completeExceptionally(mFailure);
+			else mResult.complete(exitValue);
+		} catch(Exception e) {
+			mResult.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Stop the command. The command is asked to stop, then forced to stop if still
+	 * running after a few seconds. A blocking {@link LineBuffer} consumer is closed so that
+	 * the command is not held waiting for output to be read.
+	 **/
+	public void kill()
+	{
+		final java.lang.Process process = mProcess;
+		if(process == null || ! process.isAlive()) return;
+
+		mKilled = true;
+		close(mOutput);
+		close(mError);
+
+		process.destroy();
+		mTimer.schedule(new Runnable() {
+			public void run() {
+				if(process.isAlive()) process.destroyForcibly();
+				if(mPumps.get() > 0) {	// A child of the command may still hold the streams open
+					try {
+						process.getInputStream().close();
+						process.getErrorStream().close();
+					} catch(IOException e) {
+						// Ignore
+					}
+				}
+			}
+		}, KILL_WAIT, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Run a task after a delay on the timer shared by all commands.
+	 *
+	 * @param task    the task.
+	 * @param delay   the delay in milliseconds.
+	 *
+	 * @return the {@link ScheduledFuture} for the task.
+	 **/
+	static ScheduledFuture<?> schedule(Runnable task, long delay)
+	{
+		return mTimer.schedule(task, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Close a consumer if it is a {@link LineBuffer}.
+	 **/
+	static private void close(Consumer<String> consumer)
+	{
+		if(consumer instanceof LineBuffer) ((LineBuffer) consumer).close();
+	}
+
+	/**
+	 * Set the executor which runs the tasks that read the output of commands.
+	 * The executor must run each task when given, without waiting for other tasks to end.
+	 * If the current executor was created by this class it is shut down once its tasks finish.
+	 *
+	 * @param executor   the executor. If null a default executor is created when next needed.
+	 **/
+	static public synchronized void setExecutor(ExecutorService executor)
+	{
+		if(mPool != null && mOwnPool) mPool.shutdown();
+		mPool = executor;
+		mOwnPool = false;
+	}
+
+	/**
+	 * Get the executor which runs the tasks that read the output of commands.
+	 * The default executor is created on first use.
+	 *
+	 * @return the executor.
+	 **/
+	static public synchronized ExecutorService getExecutor()
+	{
+		if(mPool == null || mPool.isShutdown()) {
+			mPool = createExecutor();
+			mOwnPool = true;
+		}
+		return mPool;
+	}
+
+	/**
+	 * Shut down the default executor once its tasks finish. A new one is created if another command is started.
+	 * An executor set with {@link #setExecutor(ExecutorService)} is left for its owner to shut down.
+	 **/
+	static public synchronized void shutdown()
+	{
+		if(mPool != null && mOwnPool) mPool.shutdown();
+		mPool = null;
+		mOwnPool = false;
+	}
+
+	/**
+	 * Create the default executor. A virtual thread for each task if the runtime supports it,
+	 * otherwise a pool of reused daemon threads.
+	 *
+	 * @return the executor.
+	 **/
+	static public ExecutorService createExecutor()
+	{
+		try {	// Java 21 and later
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(Exception e) {
+			// Not supported
+		}
+
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			AtomicInteger	mCount = new AtomicInteger();
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "AsyncProcess-" + mCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Determine if the runtime supports virtual threads.
+	 *
+	 * @return <code>true</code> if virtual threads are available.
+	 **/
+	static public boolean hasVirtualThreads()
+	{
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch(Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Get the number of streams being read for all commands.
+	 *
+	 * @return the number of running reader tasks.
+	 **/
+	static public int getActiveCount() { return mActive.get(); }
+
+	/**
+	 * Read lines from a stream and pass each to a consumer. If the consumer fails
+	 * the rest of the stream is read and discarded.
+	 * The last reader of a command to finish completes its future.
+	 **/
+	class Pump implements Runnable {
+		InputStream	mStream;
+		Consumer<String>	mConsumer;
+		AtomicInteger	mOpen;	// Streams still passing lines to the consumer
+
+		Pump(InputStream stream, Consumer<String> consumer, AtomicInteger open)
+		{
+			mStream = stream;
+			mConsumer = consumer;
+			mOpen = open;
+		}
+
+		public void run()
+		{
+			Consumer<String> consumer = mConsumer;
+			mActive.incrementAndGet();
+			try {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(mStream));
+				String line;
+				while((line = reader.readLine()) != null) {
+					if(consumer == null) continue;
+					try {
+						consumer.accept(line);
+					} catch(RuntimeException e) {
+						if(mFailure == null) mFailure = e;
+						consumer = null;
+					}
+				}
+				reader.close();
+			} catch(IOException e) {
+				// Stream closed when the command was killed
+			} finally {
+				if(mOpen.decrementAndGet() == 0) close(mConsumer);
+				mActive.decrementAndGet();
+				if(mPumps.decrementAndGet() == 0) finish();
+			}
+		}
+	}
+
+	/** @return the command line. */
+	public String getCommand() { return mCommand; }
+
+	/** @return the future for the exit status, or null if not started. */
+	public synchronized CompletableFuture<Integer> getResult() { return mResult; }
+
+	/** @return <code>true</code> if the command has started and not yet exited. */
+	public boolean isAlive()
+	{
+		java.lang.Process process = mProcess;
+		return process != null && process.isAlive();
+	}
+
+	/** @return <code>true</code> if the command was killed, including by a timeout. */
+	public boolean isKilled() { return mKilled; }
+
+	/** @return <code>true</code> if the command was killed because the timeout passed. */
+	public boolean isTimedOut() { return mTimedOut; }
+}
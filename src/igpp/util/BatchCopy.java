@@ -0,0 +1,340 @@
+package igpp.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copy or move many files at once. Files are added as source and destination pairs or
+ * as whole directory trees, then copied concurrently by {@link #run()} using {@link FileCopy}.
+ * Each copy is written to a temporary file and renamed into place, so a failed copy
+ * leaves its destination unchanged.
+ *<p>
+ * Digests of the data can be created while it is copied (see {@link #setDigestMethods(String...)}),
+ * so copies can be verified without reading the files again. A {@link Listener} is told
+ * when each job starts, makes progress and finishes.
+ *<p>
+ * When moving, a file is renamed if the source and destination are on the same
+ * file system, otherwise it is copied and the source is removed after the copy is complete.
+ * A moved file is always copied when digests are requested.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class BatchCopy {
+	/**
+	 * Receives the progress of each job. Methods are called on the thread doing the copy.
+	 **/
+	public interface Listener {
+		/** Called when a job starts. */
+		void jobStarted(Job job);
+
+		/** Called as data is copied. {@link Job#getCopied()} is the number of bytes copied so far. */
+		void jobProgress(Job job);
+
+		/** Called when a job ends. {@link Job#getError()} is set if it failed. */
+		void jobFinished(Job job);
+	}
+
+	/**
+	 * One file to copy or move, and the outcome once it has run.
+	 **/
+	static public class Job {
+		String	mSource;
+		String	mDestination;
+		volatile long	mSize = 0;
+		volatile long	mCopied = 0;
+		volatile boolean	mDone = false;
+		DigestResult	mDigest = null;
+		Exception	mError = null;
+
+		Job(String source, String destination)
+		{
+			mSource = source;
+			mDestination = destination;
+		}
+
+		/** @return the path to the source file. */
+		public String getSource() { return mSource; }
+
+		/** @return the path to the destination file. */
+		public String getDestination() { return mDestination; }
+
+		/** @return the size of the source file, known once the job starts and updated to the size copied when it ends. */
+		public long getSize() { return mSize; }
+
+		/** @return the number of bytes copied so far. */
+		public long getCopied() { return mCopied; }
+
+		/** @return <code>true</code> if the job has ended. */
+		public boolean isDone() { return mDone; }
+
+		/** @return <code>true</code> if the job ended without error. */
+		public boolean isSuccess() { return mDone && mError == null; }
+
+		/** @return the digests of the data copied, or null if none were requested or the file was renamed. */
+		public DigestResult getDigest() { return mDigest; }
+
+		/** @return the error which ended the job, or null. */
+		public Exception getError() { return mError; }
+	}
+
+	ArrayList<Job>	mJob = new ArrayList<Job>();
+	FileCopy	mCopier = new FileCopy();
+	Listener	mListener = null;
+	String[]	mMethods = null;
+	boolean	mMove = false;
+	int	mThreads = 4;
+
+	AtomicLong	mFiles = new AtomicLong();
+	AtomicLong	mBytes = new AtomicLong();
+	AtomicLong	mFailed = new AtomicLong();
+	long	mElapsed = 0;
+
+	public BatchCopy()
+	{
+	}
+
+	/**
+	 * Add a file to copy.
+	 *
+	 * @param source        the path to the source file.
+	 * @param destination   the path to the destination file.
+	 *
+	 * @return the {@link Job} for the file.
+	 **/
+	public Job add(String source, String destination)
+	{
+		Job job = new Job(source, destination);
+		mJob.add(job);
+
+		return job;
+	}
+
+	/**
+	 * Add every file in a directory tree. Destination folders are created as needed.
+	 * Folders starting with "." are skipped in the same way as {@link Listing#getFolderList(File)}.
+	 * Symbolic links to files are copied as files, but links to folders are not followed,
+	 * so a link to a folder above it does not copy part of the tree again.
+	 *
+	 * @param source        the path to the root of the source tree.
+	 * @param destination   the path to the folder the tree is copied into.
+	 *
+	 * @return the number of files added.
+	 **/
+	public int addTree(String source, String destination)
+	{
+		int before = mJob.size();
+		final File base = new File(source);
+		final File target = new File(destination);
+
+		try {
+			final Path root = Paths.get(source).toRealPath();	// The root may be a link
+			DirectoryWalker walker = new DirectoryWalker();	// Does not follow links to folders
+			walker.walk(root.toString(), new DirectoryWalker.Visitor() {
+				public boolean visit(Path path, BasicFileAttributes attributes) {
+					if(attributes.isSymbolicLink() ? ! Files.isRegularFile(path) : ! attributes.isRegularFile()) return true;
+					String name = root.relativize(path).toString();
+					add(new File(base, name).getPath(), new File(target, name).getPath());
+					return true;
+				}
+			});
+		} catch(IOException e) {
+			// Not a folder or can not be read - nothing to add
+		}
+
+		return mJob.size() - before;
+	}
+
+	/**
+	 * Get the jobs in the order they were added.
+	 *
+	 * @return the list of {@link Job} objects.
+	 **/
+	public ArrayList<Job> getJobs()
+	{
+		return mJob;
+	}
+
+	/**
+	 * Set whether files are moved rather than copied. The default is to copy.
+	 *
+	 * @param move   <code>true</code> to move files.
+	 **/
+	public void setMove(boolean move) { mMove = move; }
+
+	/**
+	 * Set the digests created while copying.
+	 *
+	 * @param methods   the names of the digest methods (i.e. "MD5", "SHA-256"), or none.
+	 **/
+	public void setDigestMethods(String... methods)
+	{
+		if(methods != null && methods.length == 0) methods = null;
+		mMethods = methods;
+	}
+
+	/**
+	 * Set the number of files copied at the same time. The default is 4.
+	 *
+	 * @param threads   the number of threads.
+	 **/
+	public void setThreads(int threads)
+	{
+		if(threads < 1) throw new IllegalArgumentException("Thread count must be positive");
+		mThreads = threads;
+	}
+
+	/**
+	 * Set the listener for the progress of jobs.
+	 *
+	 * @param listener   the {@link Listener} or null for none.
+	 **/
+	public void setListener(Listener listener) { mListener = listener; }
+
+	/**
+	 * Get the {@link FileCopy} used for each file, to change its options.
+	 *
+	 * @return the {@link FileCopy}.
+	 **/
+	public FileCopy getCopier() { return mCopier; }
+
+	/**
+	 * Run all jobs which have not been run and wait for them to end.
+	 * A job which fails does not stop the others.
+	 *
+	 * @return the number of jobs which failed.
+	 *
+	 * @throws Exception if a digest method is not supported.
+	 **/
+	public long run()
+		throws Exception
+	{
+		if(mMethods != null) {
+			for(String method : mMethods) MessageDigest.getInstance(method);	// Fail early
+		}
+
+		long start = System.nanoTime();
+		long failed = mFailed.get();
+		ExecutorService pool = Executors.newFixedThreadPool(mThreads);
+		try {
+			for(Job item : mJob) {
+				if(item.mDone) continue;
+				final Job job = item;
+				pool.execute(new Runnable() {
+					public void run() { runJob(job); }
+				});
+			}
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			mElapsed += System.nanoTime() - start;
+		}
+
+		return mFailed.get() - failed;
+	}
+
+	/**
+	 * Copy or move one file.
+	 **/
+	private void runJob(final Job job)
+	{
+		if(mListener != null) mListener.jobStarted(job);
+
+		try {
+			Path source = Paths.get(job.mSource);
+			Path destination = Paths.get(job.mDestination).toAbsolutePath();
+			job.mSize = Files.size(source);
+			Files.createDirectories(destination.getParent());
+			long copied = job.mSize;	// Unless copied, when the source may change during the copy
+
+			if( ! (mMove && mMethods == null && rename(source, destination))) {
+				MessageDigest[] maker = null;
+				if(mMethods != null) {
+					maker = new MessageDigest[mMethods.length];
+					for(int i = 0; i < maker.length; i++) maker[i] = MessageDigest.getInstance(mMethods[i]);
+				}
+
+				copied = mCopier.copy(job.mSource, destination.toString(), maker, new FileCopy.Progress() {
+					public void copied(long bytes) {
+						job.mCopied = bytes;
+						if(mListener != null) mListener.jobProgress(job);
+					}
+				});
+
+				if(maker != null) {
+					DigestResult result = new DigestResult(job.mSource);
+					result.mBytes = copied;
+					for(int i = 0; i < maker.length; i++) result.put(mMethods[i], Digest.byteArrayToHexString(maker[i].digest()));
+					job.mDigest = result;
+				}
+				if(mMove) Files.delete(source);
+			}
+
+			job.mSize = copied;
+			job.mCopied = copied;
+			mFiles.incrementAndGet();
+			mBytes.addAndGet(copied);
+		} catch(Exception e) {
+			job.mError = e;
+			mFailed.incrementAndGet();
+		}
+
+		job.mDone = true;
+		if(mListener != null) mListener.jobFinished(job);
+	}
+
+	/**
+	 * Move a file by renaming it.
+	 *
+	 * @return <code>true</code> if renamed, <code>false</code> if the file must be copied.
+	 **/
+	private boolean rename(Path source, Path destination)
+		throws IOException
+	{
+		try {
+			Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch(AtomicMoveNotSupportedException e) {
+			return false;	// Different file systems
+		}
+
+		return true;
+	}
+
+	/** @return the number of files copied or moved. */
+	public long getFileCount() { return mFiles.get(); }
+
+	/** @return the number of bytes in the files copied or moved. */
+	public long getByteCount() { return mBytes.get(); }
+
+	/** @return the number of jobs which failed. */
+	public long getErrorCount() { return mFailed.get(); }
+
+	/** @return the time spent in {@link #run()} in nanoseconds. */
+	public long getElapsed() { return mElapsed; }
+
+	/**
+	 * Get the rate of copying over all runs.
+	 *
+	 * @return the number of bytes copied or moved per second.
+	 **/
+	public double getThroughput()
+	{
+		if(mElapsed <= 0) return 0.0;
+
+		return mBytes.get() * 1.0e9 / mElapsed;
+	}
+}
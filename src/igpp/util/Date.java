@@ -21,6 +21,16 @@ public class Date extends java.lang.Object {
 	static String	mVersion = "1.0.1";
 	static private String mDateFormat = "yyyy-MM-dd HH:mm:ss.SSS";
 	
+	static private TimeZone mGMT = TimeZone.getTimeZone("GMT-0:00");
+	
+	// Formats learned for each source by interpret()
+	static private TimeDetector mDetector = new TimeDetector();
+	
+	// One parser per thread so parsing does not allocate
+	static private ThreadLocal<TimeParser> mParser = new ThreadLocal<TimeParser>() {
+		protected TimeParser initialValue() { return new TimeParser(); }
+	};
+	
  	// Enumeration of possible value type
 	/** 1/19/83 11:45:30.234 */	static public final String AMERDATE = "MM/dd/yy HH:mm:ss.SSS";      
 	/** 19.1.83 11:45:30.234 */	static public final String EURODATE = "dd-MM-yy HH:mm:ss.SSS";
@@ -140,7 +150,7 @@ public class Date extends java.lang.Object {
 	 **/
 	static public String getDateString(java.util.Date date)
 	{
-		return new SimpleDateFormat(mDateFormat).format(date);
+		return DateFormatCache.format(date, mDateFormat);
 	}
 	
 	/**
@@ -152,7 +162,7 @@ public class Date extends java.lang.Object {
 	 **/
 	static public String getDateString(Calendar cal)
 	{
-		return new SimpleDateFormat(mDateFormat).format(cal.getTime());
+		return DateFormatCache.format(cal.getTime(), mDateFormat);
 	}
 
 	/**
@@ -181,7 +191,7 @@ public class Date extends java.lang.Object {
 	 **/
 	static public String getDateString(java.util.Date date, String form)
 	{
-		return new SimpleDateFormat(form).format(date);
+		return DateFormatCache.format(date, form);
 	}
 
 	/**
@@ -194,7 +204,7 @@ public class Date extends java.lang.Object {
 	 **/
 	static public String getDateString(Calendar cal, String form)
 	{
-		return new SimpleDateFormat(form).format(cal.getTime());
+		return DateFormatCache.format(cal.getTime(), form);
 	}
 
 	/**
@@ -222,7 +232,7 @@ public class Date extends java.lang.Object {
 		Calendar cal = new GregorianCalendar();
 		
 		try {
-			cal.setTime(new SimpleDateFormat(mDateFormat).parse(date));
+			cal.setTime(DateFormatCache.parse(date, mDateFormat));
 		} catch(Exception e) {
 			e.printStackTrace();
 			// Do nothing
@@ -476,7 +486,8 @@ public class Date extends java.lang.Object {
      * The value can have the a standard time value form of YYYY-MM-DD HH:mm:sss
      * or be a relative specification such as "X days". Supported relative units
      * are: second, minute, day, month, year. Units can be singular (day) or plural 
-     * (days) and retain the same meaning.
+     * (days) and retain the same meaning. If the value is neither, the format is 
+     * detected from the standard formats (see {@link TimeDetector}).
      *
 	  * @param value	the text containing the string to parse.
 	  *
@@ -488,9 +499,60 @@ public class Date extends java.lang.Object {
 	 {
 	 	if(igpp.util.Text.isEmpty(value)) return null;
 	 	
-	 	if(value.indexOf("-") != -1) return parse(value, CONVENTION);	// Treat as convention format
-
-		// Intrept unitized values
+	 	Calendar time = null;
+	 	if(value.indexOf("-") != -1) time = parse(value, CONVENTION);	// Treat as convention format
+	 	else time = interpretRelative(value);
+	 	if(time != null) return time;
+	 	
+	 	long nanos = TimeDetector.parseAny(value);
+	 	if(nanos == TimeParser.INVALID) return null;
+	 	
+	 	return getCalendar(Math.floorDiv(nanos, 1000000L));
+	 }
+	 
+    /** 
+     * Convert a string from a source of values (such as a column in a file) into a 
+     * Calendar. The format of the first value from a source is detected and remembered,
+     * so later values from the source are parsed directly with the learned format. The 
+     * format is detected again only when a value does not match the learned format.
+     * Relative specifications such as "X days" are interpreted as with {@link #interpret(String)}.
+     *
+	  * @param value	the text containing the string to parse.
+	  * @param source	the name of the source of the value (for example "data.csv:2").
+	  *
+	  * @return  A {@link Calendar} set the parsed time value, null if unable to parse the string.
+	  *
+     * @since           1.0
+    **/
+	 static public Calendar interpret(String value, String source) 
+	 {
+	 	if(igpp.util.Text.isEmpty(value)) return null;
+	 	
+	 	Calendar time = interpretDetected(value, source);
+	 	if(time != null) return time;
+	 	
+		return interpretRelative(value);
+	 }
+	 
+	/**
+	 * Parse a value with the format learned for a source or detected from the value.
+	 **/
+	 static private Calendar interpretDetected(String value, String source)
+	 {
+	 	if(value.compareToIgnoreCase("EOM") == 0) return getEternity();
+	 	if(value.compareToIgnoreCase("LAUNCH") == 0) return getDawn();
+	 	
+	 	long nanos = mDetector.parse(source, value);
+	 	if(nanos == TimeParser.INVALID) return null;
+	 	
+	 	return getCalendar(Math.floorDiv(nanos, 1000000L));
+	 }
+	 
+	/**
+	 * Intrept unitized values. The value is the time before now.
+	 **/
+	 static private Calendar interpretRelative(String value)
+	 {
 		Calendar time = getNow();
 		
 		String[] part = value.split(" ", 2);
@@ -506,10 +568,11 @@ public class Date extends java.lang.Object {
 		part[1] = part[1].toLowerCase();
 		
 		if(part[1].startsWith("second")) time.add(Calendar.SECOND, -step);
-		if(part[1].startsWith("minute")) time.add(Calendar.MINUTE, -step);
-		if(part[1].startsWith("day")) time.add(Calendar.DAY_OF_YEAR, -step);
-		if(part[1].startsWith("month")) time.add(Calendar.MONTH, -step);
-		if(part[1].startsWith("year")) time.add(Calendar.YEAR, -step);
+		else if(part[1].startsWith("minute")) time.add(Calendar.MINUTE, -step);
+		else if(part[1].startsWith("day")) time.add(Calendar.DAY_OF_YEAR, -step);
+		else if(part[1].startsWith("month")) time.add(Calendar.MONTH, -step);
+		else if(part[1].startsWith("year")) time.add(Calendar.YEAR, -step);
+		else return null;	// Unknown units
 		
 		return time;
 	 }
@@ -561,9 +624,7 @@ public class Date extends java.lang.Object {
 				return parseISO8601(value);	   
 			} else {	// Parse using pattern
 				Calendar cal = new GregorianCalendar();
-				SimpleDateFormat parser = new SimpleDateFormat(pattern);	
-				parser.setTimeZone(TimeZone.getTimeZone("GMT-0:00"));
-				cal.setTime(parser.parse(value));
+				cal.setTime(DateFormatCache.parse(value, pattern, mGMT));
 				int n = cal.get(Calendar.YEAR);
 				if(n >= 20 && n < 100) cal.add(Calendar.YEAR, 1900);
 				if(n >= 0 && n < 20) cal.add(Calendar.YEAR, 2000);
@@ -765,96 +826,61 @@ public class Date extends java.lang.Object {
 	static public Calendar parseISO8601(String date, Boolean ceil)
 	{
 		Calendar cal = new GregorianCalendar();
-		String	buffer;
-		String	part[];
 		
 		cal.clear();
-		buffer = date;
-		if(buffer.length() == 0) return cal;	// Now
+		if(date.length() == 0) return cal;	// Now
 		
-		// Remove time zone information
-		part = buffer.split("Z", 2);
-		buffer = part[0];
+		TimeParser parser = mParser.get();
+		parser.scanISO8601(date, ceil);
 		
-		try {
-			// Year
-			part = buffer.split("-", 2);
-			cal.set(Calendar.YEAR, Integer.parseInt(part[0]));
-			if(part.length == 1) { cal = setLimit(ceil, cal, Calendar.MONTH); return cal; }
-			buffer = part[1];
-			
-			// Month or DOY
-			part = buffer.split("-", 2);
-			if(part.length == 1) { // DOY
-				// Day
-				part = buffer.split("[T ]", 2);	// Allow "T" or " "
-				cal.set(Calendar.DAY_OF_YEAR, Integer.parseInt(part[0]));
-				if(part.length == 1) { cal = setLimit(ceil, cal, Calendar.HOUR_OF_DAY); return cal; }
-				buffer = part[1];				
-			} else { //Month
-				cal.set(Calendar.MONTH, Integer.parseInt(part[0])-1);	// January = 0
-				if(part.length == 1) { cal = setLimit(ceil, cal, Calendar.DAY_OF_MONTH); return cal; }
-				buffer = part[1];
-				
-				// Day
-				part = buffer.split("[T ]", 2);	// Allow "T" or " "
-				cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(part[0]));
-				if(part.length == 1) { cal = setLimit(ceil, cal, Calendar.HOUR_OF_DAY); return cal; }
-				buffer = part[1];
-			}
-			
-			// Find offsets if any. Form is hh:mm:ss[+-]hh[mm]
-			int offset = 0;
-			int sign = 1;
-			if(buffer.indexOf("-") != -1) {	// Negative offset
-				part = buffer.split("[-]", 2);
-				sign = -1;
-			} else {	// Assume positive offset
-				part = buffer.split("[+]", 2);
-			}
-			if(part.length > 1) {
-				part[1] = part[1].replace(":", "");
-				if(part[1].length() > 1) {	// convert hh portion
-					offset += 60 * Integer.parseInt(part[1].substring(0, 2));
-				}
-				if(part[1].length() > 1) {	// convert mm portion
-					offset += Integer.parseInt(part[1].substring(2, 4));
-				}
-				
-				offset = sign * offset;
-				buffer = part[0];	// hh:mm:ss portion is what remains
-			}
-			
-			// Hour
-			part = buffer.split(":", 2);
-			cal.set(Calendar.HOUR, Integer.parseInt(part[0]));
-			if(part.length == 1) { cal = setLimit(ceil, cal, Calendar.MINUTE); return cal; }
-			buffer = part[1];
-			
-			// Minute
-			part = buffer.split(":", 2);
-			cal.set(Calendar.MINUTE, Integer.parseInt(part[0]));
-			if(part.length == 1) { cal = setLimit(ceil, cal, Calendar.SECOND); return cal; }
-			buffer = part[1];
-			
-			// Seconds
-			part = buffer.split("\\.", 2);
-			cal.set(Calendar.SECOND, Integer.parseInt(part[0]));
-			if(part.length == 1) { cal = setLimit(ceil, cal, Calendar.MILLISECOND); return cal;}
-			buffer = part[1];
-			
-			// Milliseconds
-			cal.set(Calendar.MILLISECOND, Integer.parseInt(buffer));
-			
-			// Add offsets
-			cal.add(Calendar.MINUTE, offset);
-			
-		} catch(Exception e) {
-			e.printStackTrace();
-			// Do nothing
-		}
+		return parser.toCalendar(cal);
+	}
+	
+	/**
+	 * Parses an ISO-8601 formatted time string into the count of milliseconds
+	 * since the epoch (1970-01-01T00:00:00Z). The time is taken to be UTC.
+	 * The string is scanned in a single pass without creating any intermediate objects.
+	 * Accepts the same forms as {@link #parseISO8601(String, Boolean)}.
+	 * 
+	 * @param date   the ISO-8601 time stirng
+	 * @param ceil   indicate if maximum value is assumed for non-specified parts.
+	 *               If <code>false</code> minimum (floor) value is assumed.
+	 *
+	 * @return the number of milliseconds since the epoch or {@link TimeParser#INVALID}
+	 *         if the string could not be parsed.
+	 **/
+	static public long parseISO8601Millis(CharSequence date, boolean ceil)
+	{
+		return mParser.get().parseISO8601(date, ceil);
+	}
+	
+	/**
+	 * Parses an ISO-8601 formatted time string into the count of nanoseconds
+	 * since the epoch (1970-01-01T00:00:00Z). The time is taken to be UTC.
+	 * Accepts the same forms as {@link #parseISO8601(String, Boolean)}.
+	 * 
+	 * @param date   the ISO-8601 time stirng
+	 * @param ceil   indicate if maximum value is assumed for non-specified parts.
+	 *               If <code>false</code> minimum (floor) value is assumed.
+	 *
+	 * @return the number of nanoseconds since the epoch or {@link TimeParser#INVALID}
+	 *         if the string could not be parsed. See {@link TimeParser#toEpochNanos()}.
+	 **/
+	static public long parseISO8601Nanos(CharSequence date, boolean ceil)
+	{
+		return mParser.get().parseISO8601Nanos(date, ceil);
+	}
+	
+	/**
+	 * Scan an ISO-8601 time string with the floor value for non-specified parts.
+	 * As with {@link #parseISO8601(String)} the fields parsed before any error are used.
+	 **/
+	static private long scanMillis(String date)
+	{
+		TimeParser parser = mParser.get();
+		parser.scanISO8601(date, false);
 		
-		return cal;
+		return parser.toEpochMillis();
 	}
 	
 	/**
@@ -1028,11 +1054,10 @@ public class Date extends java.lang.Object {
 		if(isEmpty(baseDate)) return true;	// base is beginning of time
 		if(isEmpty(compareDate)) return true;	// Any time
 		
-		Calendar baseCal = parseISO8601(baseDate);
-		Calendar compareCal = parseISO8601(compareDate);
+		long base = scanMillis(baseDate);
+		long compare = scanMillis(compareDate);
 		
-		if(compareCal.equals(baseCal)) return true;
-		if(compareCal.after(baseCal)) return true;
+		if(compare >= base) return true;
 		
 		return false;
 	}
@@ -1077,10 +1102,10 @@ public class Date extends java.lang.Object {
 		if(isEmpty(baseDate)) return true;	// base is beginning of time
 		if(isEmpty(compareDate)) return true;	// Any time
 		
-		Calendar baseCal = parseISO8601(baseDate);
-		Calendar compareCal = parseISO8601(compareDate);
+		long base = scanMillis(baseDate);
+		long compare = scanMillis(compareDate);
 		
-		if(compareCal.after(baseCal)) return true;
+		if(compare > base) return true;
 		
 		return false;
 	}
@@ -1123,11 +1148,10 @@ public class Date extends java.lang.Object {
 		if(isEmpty(baseDate)) return true;	// base is end of time
 		if(isEmpty(compareDate)) return true;	// Any time
 		
-		Calendar baseCal = parseISO8601(baseDate);
-		Calendar compareCal = parseISO8601(compareDate);
+		long base = scanMillis(baseDate);
+		long compare = scanMillis(compareDate);
 		
-		if(compareCal.equals(baseCal)) return true;
-		if(compareCal.before(baseCal)) return true;
+		if(compare <= base) return true;
 		
 		return false;
 	}
@@ -1172,10 +1196,10 @@ public class Date extends java.lang.Object {
 		if(isEmpty(baseDate)) return true;	// base is end of time
 		if(isEmpty(compareDate)) return true;	// Any time
 		
-		Calendar baseCal = parseISO8601(baseDate);
-		Calendar compareCal = parseISO8601(compareDate);
+		long base = scanMillis(baseDate);
+		long compare = scanMillis(compareDate);
 		
-		if(compareCal.before(baseCal)) return true;
+		if(compare < base) return true;
 		
 		return false;
 	}
@@ -0,0 +1,215 @@
+package igpp.util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+/**
+ * A registry of {@link SimpleDateFormat} instances keyed by pattern and time zone.
+ * Creating a {@link SimpleDateFormat} is expensive and instances are not thread safe,
+ * so each thread keeps its own set of formatters. The standard patterns defined
+ * in {@link Date} are compiled when a thread first uses a time zone and are never
+ * removed. Other patterns are kept in a bounded cache which discards the least
+ * recently used pattern when full.
+ *<p>
+ * A formatter returned by {@link #getFormat(String, TimeZone)} belongs to the calling
+ * thread. It must not be passed to another thread and its settings must not be altered.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class DateFormatCache {
+	static String mVersion = "1.0.0";
+
+	/** The patterns which are compiled in advance. */
+	static public final String[] NAMED = {
+		Date.AMERDATE, Date.EURODATE, Date.AMER, Date.EURO, Date.DOY, Date.JAPANDATE,
+		Date.NIPPONDATE, Date.HIGHLOW, Date.ISEEDATE, Date.DFS, Date.ABBRDFS, Date.CLUSTER,
+		Date.CONVENTION, "yyyy-MM-dd", "HH:mm:ss.SSS", "yyyy DDD HH:mm:ss.SSS", "yyyy MM dd HH:mm:ss.SSS"
+	};
+
+	/** Default number of other patterns kept per time zone for each thread. */
+	static public final int DEFAULT_CAPACITY = 32;
+
+	static private int mCapacity = DEFAULT_CAPACITY;
+
+	static private ThreadLocal<HashMap<String, ZoneCache>> mCache = new ThreadLocal<HashMap<String, ZoneCache>>() {
+		protected HashMap<String, ZoneCache> initialValue() { return new HashMap<String, ZoneCache>(); }
+	};
+
+	public DateFormatCache()
+	{
+	}
+
+	/**
+	 * Formatters for one time zone on one thread.
+	 **/
+	static private class ZoneCache {
+		TimeZone mZone;
+		HashMap<String, SimpleDateFormat> mNamed = new HashMap<String, SimpleDateFormat>();
+		LinkedHashMap<String, SimpleDateFormat> mRecent = new LinkedHashMap<String, SimpleDateFormat>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<String, SimpleDateFormat> eldest) { return size() > mCapacity; }
+		};
+
+		ZoneCache(TimeZone zone)
+		{
+			mZone = (TimeZone) zone.clone();
+			for(String pattern : NAMED) {
+				SimpleDateFormat format = create(pattern, mZone);
+				if(format != null) mNamed.put(pattern, format);
+			}
+		}
+
+		SimpleDateFormat get(String pattern)
+		{
+			SimpleDateFormat format = mNamed.get(pattern);
+			if(format != null) return format;
+
+			format = mRecent.get(pattern);
+			if(format != null) return format;
+
+			format = new SimpleDateFormat(pattern);	// Throws IllegalArgumentException if pattern is invalid
+			format.setTimeZone(mZone);
+			mRecent.put(pattern, format);
+
+			return format;
+		}
+	}
+
+	/**
+	 * Create a formatter for a pattern.
+	 *
+	 * @return the formatter or null if the pattern is not valid.
+	 **/
+	static private SimpleDateFormat create(String pattern, TimeZone zone)
+	{
+		try {
+			SimpleDateFormat format = new SimpleDateFormat(pattern);
+			format.setTimeZone(zone);
+			return format;
+		} catch(IllegalArgumentException e) {
+			// Not a SimpleDateFormat pattern (i.e. "T" or "B1966")
+		}
+
+		return null;
+	}
+
+	/**
+	 * Obtain the formatter for a pattern in the default time zone.
+	 *
+	 * @param pattern    the pattern to format dates with. See {@link SimpleDateFormat}.
+	 *
+	 * @return the {@link SimpleDateFormat} for the pattern owned by the calling thread.
+	 *
+	 * @throws IllegalArgumentException if the pattern is invalid.
+	 **/
+	static public SimpleDateFormat getFormat(String pattern)
+	{
+		return getFormat(pattern, TimeZone.getDefault());
+	}
+
+	/**
+	 * Obtain the formatter for a pattern and time zone.
+	 *
+	 * @param pattern    the pattern to format dates with. See {@link SimpleDateFormat}.
+	 * @param zone       the {@link TimeZone} to format dates in.
+	 *
+	 * @return the {@link SimpleDateFormat} for the pattern owned by the calling thread.
+	 *
+	 * @throws IllegalArgumentException if the pattern is invalid.
+	 **/
+	static public SimpleDateFormat getFormat(String pattern, TimeZone zone)
+	{
+		HashMap<String, ZoneCache> zones = mCache.get();
+		ZoneCache cache = zones.get(zone.getID());
+		if(cache == null || ! cache.mZone.hasSameRules(zone)) {
+			cache = new ZoneCache(zone);
+			zones.put(zone.getID(), cache);
+		}
+
+		return cache.get(pattern);
+	}
+
+	/**
+	 * Format a date using a pattern in the default time zone.
+	 *
+	 * @param date       the {@link java.util.Date} to format.
+	 * @param pattern    the pattern to format the date with. See {@link SimpleDateFormat}.
+	 *
+	 * @return the formatted date.
+	 **/
+	static public String format(java.util.Date date, String pattern)
+	{
+		return getFormat(pattern).format(date);
+	}
+
+	/**
+	 * Format a date using a pattern in a time zone.
+	 *
+	 * @param date       the {@link java.util.Date} to format.
+	 * @param pattern    the pattern to format the date with. See {@link SimpleDateFormat}.
+	 * @param zone       the {@link TimeZone} to format the date in.
+	 *
+	 * @return the formatted date.
+	 **/
+	static public String format(java.util.Date date, String pattern, TimeZone zone)
+	{
+		return getFormat(pattern, zone).format(date);
+	}
+
+	/**
+	 * Parse a date using a pattern in the default time zone.
+	 *
+	 * @param text       the text to parse.
+	 * @param pattern    the pattern to parse the text with. See {@link SimpleDateFormat}.
+	 *
+	 * @return the parsed {@link java.util.Date}.
+	 *
+	 * @throws ParseException if the text can not be parsed.
+	 **/
+	static public java.util.Date parse(String text, String pattern)
+		throws ParseException
+	{
+		return getFormat(pattern).parse(text);
+	}
+
+	/**
+	 * Parse a date using a pattern in a time zone.
+	 *
+	 * @param text       the text to parse.
+	 * @param pattern    the pattern to parse the text with. See {@link SimpleDateFormat}.
+	 * @param zone       the {@link TimeZone} to parse the text in.
+	 *
+	 * @return the parsed {@link java.util.Date}.
+	 *
+	 * @throws ParseException if the text can not be parsed.
+	 **/
+	static public java.util.Date parse(String text, String pattern, TimeZone zone)
+		throws ParseException
+	{
+		return getFormat(pattern, zone).parse(text);
+	}
+
+	/**
+	 * Set the number of other (not standard) patterns kept per time zone for each thread.
+	 *
+	 * @param capacity   the maximum number of patterns. Must be at least 1.
+	 **/
+	static public void setCapacity(int capacity) { if(capacity > 0) mCapacity = capacity; }
+
+	/**
+	 * Get the number of other (not standard) patterns kept per time zone for each thread.
+	 *
+	 * @return the maximum number of patterns.
+	 **/
+	static public int getCapacity() { return mCapacity; }
+
+	/**
+	 * Remove all formatters created by the calling thread.
+	 **/
+	static public void clear() { mCache.remove(); }
+}
@@ -1,10 +1,13 @@
 package igpp.util;
 
 import java.security.MessageDigest;
-import java.security.DigestInputStream;
 
 import java.io.File;
-import java.io.FileInputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Create message digests (checksums) for phrases or files.
@@ -15,6 +18,16 @@ import java.io.FileInputStream;
 public class Digest{
 	static String mVersion = "1.0.0";
 	
+	/** The default size of the buffer used to read files. */
+	static public final int BUFFER_SIZE = 1024 * 1024;
+	
+	static private int mBufferSize = BUFFER_SIZE;
+	
+	// Direct buffer reused by each thread to read files
+	static private ThreadLocal<ByteBuffer> mBuffer = new ThreadLocal<ByteBuffer>();
+	
+	static private DigestCache mCache = null;
+	
 	public Digest()
 	{
 	}
@@ -22,19 +35,53 @@ public class Digest{
 	public static void main(String[] args)
 	{
 		Digest me = new Digest();
-		if(args.length < 2) {
+		if(args.length < 2 || (args[0].startsWith("-") && args.length < 3)) {
 			System.out.println("Version: " + me.mVersion);
-			System.out.println("Usage: " + me.getClass().getName() + "{method} {phrase}");
+			System.out.println("Usage: " + me.getClass().getName() + " {method} {phrase}");
+			System.out.println("       " + me.getClass().getName() + " -d {method} {directory} [threads]");
+			System.out.println("With -d a manifest of every file in the directory tree is written.");
+			System.out.println("       " + me.getClass().getName() + " -t {method} {file} [blocksize]");
+			System.out.println("With -t the tree digest (Merkle root) and each block digest of the file are written.");
 			return;
 		}
 		
 		try {
+			if(args[0].equals("-d")) {
+				manifest(args[1], args[2], args.length > 3 ? Integer.parseInt(args[3]) : 4);
+				return;
+			}
+			if(args[0].equals("-t")) {
+				TreeDigest tree = new TreeDigest(args[1]);
+				if(args.length > 3) tree.setBlockSize(Long.parseLong(args[3]));
+				System.out.println(tree.digestFile(args[2]) + "  " + args[2]);
+				String[] block = tree.getBlockDigests();
+				for(int i = 0; i < block.length; i++) System.out.println(block[i] + "  " + i);
+				return;
+			}
 			System.out.println(me.digestPhrase(args[0], args[1]));
 		} catch(Exception e) {
 			e.printStackTrace();
 		}
 	}
 	
+	/**
+	 * Write a checksum manifest for a directory tree to System.out
+	 * and a summary to System.err.
+	 **/
+	static private void manifest(String method, String pathName, int threads)
+		throws Exception
+	{
+		java.io.BufferedWriter out = new java.io.BufferedWriter(new java.io.OutputStreamWriter(System.out));
+		DigestManifest manifest = new DigestManifest(method);
+		manifest.setWriter(method, out);
+		manifest.setThreads(threads);
+		manifest.generate(pathName);
+		
+		System.err.println(manifest.getFileCount() + " files, " + manifest.getByteCount() + " bytes in " 
+			+ (manifest.getElapsed() / 1000000L) + " ms (" + Math.round(manifest.getThroughput() / 1048576.0) + " MB/s)"
+			+ (manifest.getErrorCount() == 0 ? "" : ", " + manifest.getErrorCount() + " errors"));
+	}
+	
 	/**
 	 * Determine when a file was last modified. Returns 0 if any error occurs.
 	 **/
@@ -83,22 +130,178 @@ public class Digest{
 	static public String digestFile(String method, String pathName) 
 		throws Exception
 	{
-		FileInputStream	input = new FileInputStream(pathName);
-		MessageDigest maker = MessageDigest.getInstance(method);
-		DigestInputStream	digest = new DigestInputStream(input, maker);
-		int	max = 2048;
-		byte[] b = new byte[max];
+		return digestFile(new String[] { method }, pathName).get(method);
+	}
+
+	/**
+	 * Create message digests for a file with several digest methods in one pass.
+	 * The file is read once through a {@link FileChannel} into a reusable direct buffer
+	 * and each block is passed to every digest. For example, the MD5 and SHA-256 
+	 * digests for a manifest are created with:
+	 *<pre>
+	 *   DigestResult result = Digest.digestFile(new String[] {"MD5", "SHA-256"}, pathName);
+	 *</pre>
+	 * If a cache is set (see {@link #setCache(DigestCache)}) digests of unchanged files
+	 * are answered by the cache.
+	 *
+	 * @param methods   the names of the digest methods (i.e. "MD5", "SHA-256").
+	 * @param pathName   the path to the file.
+	 *
+	 * @return a {@link DigestResult} with the digest for each method as a hexadecimal string.
+	 *
+	 * @throws Exception if a method is not supported or the file can not be read.
+	 **/
+	static public DigestResult digestFile(String[] methods, String pathName) 
+		throws Exception
+	{
+		DigestCache cache = mCache;
+		if(cache != null) return cache.digestFile(methods, pathName);
 		
-		while(digest.read(b, 0, max) != -1) {
-			// Just toss the bytes
+		return readFile(methods, pathName);
+	}
+	
+	/**
+	 * Create message digests for a file by reading the file. The cache is not used.
+	 **/
+	static DigestResult readFile(String[] methods, String pathName) 
+		throws Exception
+	{
+		MessageDigest[] maker = new MessageDigest[methods.length];
+		for(int i = 0; i < methods.length; i++) maker[i] = MessageDigest.getInstance(methods[i]);
+		
+		DigestResult result = new DigestResult(pathName);
+		long start = System.nanoTime();
+		
+		FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.READ);
+		try {
+			result.mBytes = update(maker, channel);
+		} finally {
+			channel.close();
 		}
 		
-		String hexString = byteArrayToHexString(maker.digest());
+		for(int i = 0; i < methods.length; i++) result.put(methods[i], byteArrayToHexString(maker[i].digest()));
+		result.mElapsed = System.nanoTime() - start;
 		
-		digest.close();
-		input.close();
+		return result;
+	}
+	
+	/**
+	 * Read a channel to the end and pass each block to every digest.
+	 * The digests are not completed.
+	 *
+	 * @param maker   the digests to update.
+	 * @param channel   the channel to read.
+	 *
+	 * @return the number of bytes read.
+	 **/
+	static public long update(MessageDigest[] maker, FileChannel channel) 
+		throws java.io.IOException
+	{
+		ByteBuffer buffer = getBuffer();
+		long	total = 0;
+		int	n;
+		
+		buffer.clear();
+		while((n = channel.read(buffer)) != -1) {
+			if(n == 0 && buffer.hasRemaining()) continue;
+			total += n;
+			if(buffer.hasRemaining()) continue;	// Fill the buffer before digesting
+			digestBuffer(maker, buffer);
+		}
+		digestBuffer(maker, buffer);
+		
+		return total;
+	}
+	
+	/**
+	 * Pass the contents of a buffer to every digest and clear the buffer.
+	 **/
+	static private void digestBuffer(MessageDigest[] maker, ByteBuffer buffer)
+	{
+		buffer.flip();
+		for(int i = 0; i < maker.length; i++) {
+			buffer.rewind();
+			maker[i].update(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Obtain the read buffer for the calling thread.
+	 **/
+	static private ByteBuffer getBuffer()
+	{
+		ByteBuffer buffer = mBuffer.get();
+		if(buffer == null || buffer.capacity() != mBufferSize) {
+			buffer = ByteBuffer.allocateDirect(mBufferSize);
+			mBuffer.set(buffer);
+		}
+		return buffer;
+	}
+	
+	/**
+	 * Create a tree digest (Merkle root) for a file by digesting blocks of the file in parallel.
+	 * See {@link TreeDigest} for the block digests and the linear digest of the file.
+	 *
+	 * @param method   the name of the digest method (i.e. "SHA-256").
+	 * @param pathName   the path to the file.
+	 * @param blockSize   the size of each block in bytes.
+	 *
+	 * @return the {@link TreeDigest} for the file.
+	 *
+	 * @throws Exception if the method is not supported or the file can not be read.
+	 **/
+	static public TreeDigest digestTree(String method, String pathName, long blockSize) 
+		throws Exception
+	{
+		TreeDigest tree = new TreeDigest(method);
+		tree.setBlockSize(blockSize);
+		tree.digestFile(pathName);
 		
-		return hexString;
+		return tree;
+	}
+	
+	/**
+	 * Set the cache used by {@link #digestFile(String[], String)} and the methods which call it,
+	 * including the digest methods of {@link igpp.util.File}.
+	 *
+	 * @param cache   the {@link DigestCache} to use, or null to always read files.
+	 **/
+	static public void setCache(DigestCache cache)
+	{
+		mCache = cache;
+	}
+	
+	/**
+	 * Get the cache used by {@link #digestFile(String[], String)}.
+	 *
+	 * @return the {@link DigestCache} or null if none is set.
+	 **/
+	static public DigestCache getCache()
+	{
+		return mCache;
+	}
+	
+	/**
+	 * Set the size of the buffer used to read files. 
+	 * Each thread which reads files allocates one buffer of this size.
+	 *
+	 * @param size   the size of the buffer in bytes.
+	 **/
+	static public void setBufferSize(int size)
+	{
+		if(size < 1) throw new IllegalArgumentException("Buffer size must be positive");
+		mBufferSize = size;
+	}
+	
+	/**
+	 * Get the size of the buffer used to read files.
+	 *
+	 * @return the size of the buffer in bytes.
+	 **/
+	static public int getBufferSize()
+	{
+		return mBufferSize;
 	}
 
 	/**
@@ -0,0 +1,345 @@
+package igpp.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent cache of file digests. Each entry records the path, size, time of
+ * last modification and digest method of a file along with its digest. A file with
+ * the same size and time of last modification as its entry is considered unchanged
+ * and its digest is returned without reading the file.
+ *<p>
+ * A digest is not added to the cache if the file changed while it was read, or if the file
+ * was changed within {@link #RACY_TIME} of being read, since some file systems record times
+ * to the second and a later change could leave the size and time the same.
+ *<p>
+ * A cache can be placed in front of {@link Digest#digestFile(String, String)} and
+ * the digest methods of {@link igpp.util.File} with {@link Digest#setCache(DigestCache)}.
+ * The cache may be used by several threads at once.
+ *<p>
+ * The modes of a cache are:
+ * <dl>
+ * <dt>{@link #MODE_NORMAL}</dt><dd>Unchanged files are answered from the cache. Other files are read and added.</dd>
+ * <dt>{@link #MODE_VERIFY}</dt><dd>Every file is read. The digest of an unchanged file is compared with the cache
+ *     and a difference is recorded as a mismatch (the content changed without a change in size or time).
+ *     The cache is not changed.</dd>
+ * <dt>{@link #MODE_FORCE}</dt><dd>Every file is read and the cache is updated.</dd>
+ * </dl>
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class DigestCache {
+	static public final int MODE_NORMAL = 0;
+	static public final int MODE_VERIFY = 1;
+	static public final int MODE_FORCE = 2;
+
+	/** The time in milliseconds after a change to a file during which its digest is not cached. */
+	static public final long RACY_TIME = 2000;
+
+	static final int MAGIC = 0x49474443;	// "IGDC"
+	static final int VERSION = 1;
+
+	String	mPathName;
+	int	mMode = MODE_NORMAL;
+	boolean	mChanged = false;
+	ConcurrentHashMap<String, Entry>	mEntry = new ConcurrentHashMap<String, Entry>();
+	List<String>	mMismatch = Collections.synchronizedList(new ArrayList<String>());
+
+	AtomicLong	mHits = new AtomicLong();
+	AtomicLong	mMisses = new AtomicLong();
+
+	/**
+	 * The attributes and digest of a file for one method.
+	 **/
+	static class Entry {
+		long	mSize;
+		long	mModified;
+		byte[]	mDigest;
+
+		Entry(long size, long modified, byte[] digest)
+		{
+			mSize = size;
+			mModified = modified;
+			mDigest = digest;
+		}
+	}
+
+	/**
+	 * Create a cache stored in a file. The file is read if it exists.
+	 *
+	 * @param pathName   the path to the file where the cache is stored.
+	 *
+	 * @throws IOException if the file exists and can not be read.
+	 **/
+	public DigestCache(String pathName)
+		throws IOException
+	{
+		mPathName = pathName;
+		if(new File(pathName).exists()) load();
+	}
+
+	/**
+	 * Set the mode of the cache.
+	 *
+	 * @param mode   one of {@link #MODE_NORMAL}, {@link #MODE_VERIFY} or {@link #MODE_FORCE}.
+	 **/
+	public void setMode(int mode)
+	{
+		if(mode < MODE_NORMAL || mode > MODE_FORCE) throw new IllegalArgumentException("Unknown mode: " + mode);
+		mMode = mode;
+	}
+
+	/** @return the mode of the cache. */
+	public int getMode() { return mMode; }
+
+	/**
+	 * Get the digest of a file for a method.
+	 *
+	 * @param method     the name of the digest method (i.e. "MD5").
+	 * @param pathName   the path to the file.
+	 *
+	 * @return the digest as a hexadecimal string.
+	 *
+	 * @throws Exception if the method is not supported or the file can not be read.
+	 **/
+	public String digestFile(String method, String pathName)
+		throws Exception
+	{
+		return digestFile(new String[] { method }, pathName).get(method);
+	}
+
+	/**
+	 * Get the digests of a file for several methods. Only methods which are not
+	 * answered by the cache are computed, in one pass over the file.
+	 *
+	 * @param methods    the names of the digest methods (i.e. "MD5", "SHA-256").
+	 * @param pathName   the path to the file.
+	 *
+	 * @return a {@link DigestResult} with the digest for each method. The number of
+	 *         bytes read is 0 if all digests were answered by the cache.
+	 *
+	 * @throws Exception if a method is not supported or the file can not be read.
+	 **/
+	public DigestResult digestFile(String[] methods, String pathName)
+		throws Exception
+	{
+		File file = new File(pathName);
+		String path = file.getAbsolutePath();
+		long size = file.length();
+		long modified = Digest.lastModified(pathName);
+
+		// Find the methods which must be computed
+		DigestResult result = new DigestResult(pathName);
+		ArrayList<String> needed = new ArrayList<String>();
+		for(String method : methods) {
+			Entry entry = mEntry.get(getKey(method, path));
+			if(mMode == MODE_NORMAL && entry != null && entry.mSize == size && entry.mModified == modified) {
+				result.put(method, toHex(entry.mDigest));
+				mHits.incrementAndGet();
+			} else {
+				result.put(method, null);	// Keeps requested order
+				needed.add(method);
+				mMisses.incrementAndGet();
+			}
+		}
+		if(needed.isEmpty()) return result;
+
+		DigestResult computed = Digest.readFile(needed.toArray(new String[needed.size()]), pathName);
+		result.mBytes = computed.mBytes;
+		result.mElapsed = computed.mElapsed;
+
+		// The digest only matches the attributes if the file did not change while read
+		boolean changed = (file.length() != size || Digest.lastModified(pathName) != modified);
+		boolean racy = (modified >= System.currentTimeMillis() - RACY_TIME);
+
+		for(String method : needed) {
+			String digest = computed.get(method);
+			result.put(method, digest);
+
+			String key = getKey(method, path);
+			if(changed) continue;	// Neither cached nor compared
+			if(mMode == MODE_VERIFY) {
+				Entry entry = mEntry.get(key);
+				if(entry != null && entry.mSize == size && entry.mModified == modified && ! toHex(entry.mDigest).equals(digest)) {
+					mMismatch.add(method + " " + path);
+				}
+			} else if( ! racy) {
+				mEntry.put(key, new Entry(size, modified, toBytes(digest)));
+				mChanged = true;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Remove the entries for a file.
+	 *
+	 * @param pathName   the path to the file.
+	 **/
+	public void remove(String pathName)
+	{
+		String suffix = "\t" + new File(pathName).getAbsolutePath();
+		Iterator<String> it = mEntry.keySet().iterator();
+		while(it.hasNext()) {
+			if(it.next().endsWith(suffix)) { it.remove(); mChanged = true; }
+		}
+	}
+
+	/**
+	 * Remove the entries for files which no longer exist.
+	 *
+	 * @return the number of entries removed.
+	 **/
+	public int prune()
+	{
+		int count = 0;
+		Iterator<String> it = mEntry.keySet().iterator();
+		while(it.hasNext()) {
+			String key = it.next();
+			if( ! new File(key.substring(key.indexOf('\t') + 1)).exists()) { it.remove(); count++; }
+		}
+		if(count > 0) mChanged = true;
+
+		return count;
+	}
+
+	/**
+	 * Remove all entries.
+	 **/
+	public void clear()
+	{
+		mEntry.clear();
+		mChanged = true;
+	}
+
+	/** @return the number of entries in the cache. */
+	public int size() { return mEntry.size(); }
+
+	/** @return the number of digests answered by the cache. */
+	public long getHitCount() { return mHits.get(); }
+
+	/** @return the number of digests which were computed. */
+	public long getMissCount() { return mMisses.get(); }
+
+	/**
+	 * Get the files whose content changed without a change in size or time of last modification.
+	 * Mismatches are only detected in {@link #MODE_VERIFY}.
+	 *
+	 * @return a list of "{method} {path}" for each mismatch.
+	 **/
+	public ArrayList<String> getMismatches()
+	{
+		synchronized(mMismatch) {
+			return new ArrayList<String>(mMismatch);
+		}
+	}
+
+	/**
+	 * Write the cache to its file if it has changed. The cache is written to a
+	 * temporary file which then replaces the file, so an interrupted save
+	 * leaves the previous cache intact.
+	 *
+	 * @throws IOException if the file can not be written.
+	 **/
+	public synchronized void save()
+		throws IOException
+	{
+		if( ! mChanged) return;
+
+		File file = new File(mPathName);
+		File temp = new File(mPathName + ".tmp");
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(mEntry.size());
+			for(Map.Entry<String, Entry> item : mEntry.entrySet()) {
+				Entry entry = item.getValue();
+				output.writeUTF(item.getKey());
+				output.writeLong(entry.mSize);
+				output.writeLong(entry.mModified);
+				output.writeByte(entry.mDigest.length);
+				output.write(entry.mDigest);
+			}
+		} finally {
+			output.close();
+		}
+
+		java.nio.file.Files.move(temp.toPath(), file.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+		mChanged = false;
+	}
+
+	/**
+	 * Read the cache from its file.
+	 **/
+	private void load()
+		throws IOException
+	{
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(mPathName), 65536));
+		try {
+			if(input.readInt() != MAGIC) throw new IOException("Not a digest cache: " + mPathName);
+			if(input.readInt() != VERSION) throw new IOException("Unsupported digest cache version: " + mPathName);
+
+			int count = input.readInt();
+			for(int i = 0; i < count; i++) {
+				String key = input.readUTF();
+				long size = input.readLong();
+				long modified = input.readLong();
+				byte[] digest = new byte[input.readUnsignedByte()];
+				input.readFully(digest);
+				mEntry.put(key, new Entry(size, modified, digest));
+			}
+		} catch(EOFException e) {
+			throw new IOException("Digest cache is truncated: " + mPathName);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Create the key for a method and file. Method names are not case sensitive.
+	 **/
+	static private String getKey(String method, String path)
+	{
+		return method.toUpperCase() + "\t" + path;
+	}
+
+	/**
+	 * Convert a hexadecimal string to bytes.
+	 **/
+	static private byte[] toBytes(String hex)
+	{
+		if(hex == null) return new byte[0];
+
+		byte[] buffer = new byte[hex.length() / 2];
+		for(int i = 0; i < buffer.length; i++) {
+			buffer[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Convert bytes to a hexadecimal string.
+	 **/
+	static private String toHex(byte[] buffer)
+	{
+		return Digest.byteArrayToHexString(buffer);
+	}
+}
@@ -0,0 +1,274 @@
+package igpp.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Create checksum manifests for all files in a directory tree.
+ * The tree is walked with {@link DirectoryWalker} and files are digested concurrently
+ * on a bounded pool of threads. Each file is read once for all requested methods
+ * (see {@link Digest#digestFile(String[], String)}).
+ *<p>
+ * Lines are written to the manifest for each method as files complete, in the format
+ * used by md5sum and sha256sum ("{digest}  {path}") with paths relative to the root
+ * of the tree. A manifest can be checked with "md5sum -c" or "sha256sum -c" run in the root.
+ * Symbolic links to files are included, but links to folders are not followed, so a link
+ * to a folder above it does not repeat part of the tree.
+ * The order of lines is the order in which files complete.
+ *<p>
+ * The number of threads should suit the storage. A few threads keep a single disk busy
+ * while more help on SSDs and network storage. The counters may be read while a
+ * manifest is being generated to report progress.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class DigestManifest {
+	String[]	mMethods;
+	Writer[]	mWriter;
+	PrintStream	mErrors = System.err;
+	int	mThreads = 4;
+
+	AtomicLong	mFiles = new AtomicLong();
+	AtomicLong	mBytes = new AtomicLong();
+	AtomicLong	mFailed = new AtomicLong();
+	long	mStart = 0;
+	long	mStop = 0;
+
+	/**
+	 * Create a manifest generator for one or more digest methods.
+	 *
+	 * @param methods   the names of the digest methods (i.e. "MD5", "SHA-256").
+	 **/
+	public DigestManifest(String... methods)
+	{
+		if(methods == null || methods.length == 0) throw new IllegalArgumentException("No digest method given");
+
+		mMethods = methods;
+		mWriter = new Writer[methods.length];
+	}
+
+	/**
+	 * Set where the manifest for a method is written.
+	 * Methods without a writer are computed but not written.
+	 *
+	 * @param method   the name of the digest method.
+	 * @param writer   the {@link Writer} for the manifest. The writer is flushed, but not closed,
+	 *                 when the manifest is complete.
+	 **/
+	public void setWriter(String method, Writer writer)
+	{
+		for(int i = 0; i < mMethods.length; i++) {
+			if(mMethods[i].equalsIgnoreCase(method)) { mWriter[i] = writer; return; }
+		}
+		throw new IllegalArgumentException("Unknown method: " + method);
+	}
+
+	/**
+	 * Set where messages about files which can not be read are written.
+	 * The default is System.err.
+	 *
+	 * @param errors   the {@link PrintStream} for messages, or null to discard them.
+	 **/
+	public void setErrorStream(PrintStream errors)
+	{
+		mErrors = errors;
+	}
+
+	/**
+	 * Set the number of files digested at the same time. The default is 4.
+	 *
+	 * @param threads   the number of threads.
+	 **/
+	public void setThreads(int threads)
+	{
+		if(threads < 1) throw new IllegalArgumentException("Thread count must be positive");
+		mThreads = threads;
+	}
+
+	/** @return the number of files digested at the same time. */
+	public int getThreads() { return mThreads; }
+
+	/**
+	 * Create the manifest for a directory tree. Folders starting with "." are
+	 * skipped in the same way as {@link Listing#getFolderList(File)}. The root may be
+	 * a symbolic link to a folder. Files and folders in the tree which can not be read
+	 * are reported and counted as errors.
+	 *
+	 * @param pathName   the path to the root of the tree.
+	 *
+	 * @return the number of files in the manifest.
+	 *
+	 * @throws Exception if the root is not a directory or a digest method is not supported.
+	 **/
+	public long generate(String pathName)
+		throws Exception
+	{
+		File root = new File(pathName);
+		if( ! root.isDirectory()) throw new IllegalArgumentException("Not a directory: " + pathName);
+		for(String method : mMethods) java.security.MessageDigest.getInstance(method);	// Fail early
+
+		mFiles.set(0);
+		mBytes.set(0);
+		mFailed.set(0);
+		mStart = System.nanoTime();
+		mStop = 0;
+
+		// Bounded queue - the walker runs tasks itself when the pool is busy
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(mThreads, mThreads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(mThreads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+		try {
+			walk(pool, root);
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			mStop = System.nanoTime();
+		}
+
+		for(Writer writer : mWriter) {
+			if(writer != null) writer.flush();
+		}
+
+		return mFiles.get();
+	}
+
+	/**
+	 * Submit each file in the tree as it is found.
+	 **/
+	private void walk(final ThreadPoolExecutor pool, File root)
+		throws IOException
+	{
+		final Path base = root.toPath().toRealPath();	// The root may be a link
+		DirectoryWalker walker = new DirectoryWalker();	// Does not follow links to folders
+		walker.walk(base.toString(), new DirectoryWalker.Visitor() {
+			public boolean visit(Path path, BasicFileAttributes attributes) {
+				if(attributes.isSymbolicLink() ? ! Files.isRegularFile(path) : ! attributes.isRegularFile()) return true;
+				final File file = path.toFile();
+				final String name = base.relativize(path).toString().replace(File.separatorChar, '/');
+				pool.execute(new Runnable() {
+					public void run() { digest(file, name); }
+				});
+				return true;
+			}
+		});
+
+		long errors = walker.getErrorCount();
+		if(errors > 0) {
+			mFailed.addAndGet(errors);
+			if(mErrors != null) mErrors.println(root.getPath() + ": " + errors + " files or folders could not be read");
+		}
+	}
+
+	/**
+	 * Digest one file and write its lines.
+	 **/
+	private void digest(File file, String name)
+	{
+		DigestResult result;
+		try {
+			result = Digest.digestFile(mMethods, file.getPath());
+		} catch(Exception e) {
+			fail(name, e);
+			return;
+		}
+
+		mFiles.incrementAndGet();
+		mBytes.addAndGet(result.getBytes());
+
+		try {
+			synchronized(this) {
+				for(int i = 0; i < mMethods.length; i++) {
+					if(mWriter[i] == null) continue;
+					mWriter[i].write(toManifestLine(result.get(mMethods[i]), name));
+					mWriter[i].write("\n");
+				}
+			}
+		} catch(Exception e) {
+			fail(name, e);
+		}
+	}
+
+	/**
+	 * Count and report a file which could not be digested.
+	 **/
+	private void fail(String name, Exception e)
+	{
+		mFailed.incrementAndGet();
+		if(mErrors != null) mErrors.println(name + ": " + e.getMessage());
+	}
+
+	/**
+	 * Create a manifest line. Names containing a backslash or newline are
+	 * escaped and the line starts with a backslash, as done by md5sum.
+	 *
+	 * @param digest   the digest as a hexadecimal string.
+	 * @param name     the path of the file.
+	 *
+	 * @return the line without a line terminator.
+	 **/
+	static public String toManifestLine(String digest, String name)
+	{
+		if(name.indexOf('\\') == -1 && name.indexOf('\n') == -1) return digest + "  " + name;
+
+		return "\\" + digest + "  " + name.replace("\\", "\\\\").replace("\n", "\\n");
+	}
+
+	/** @return the number of files digested. */
+	public long getFileCount() { return mFiles.get(); }
+
+	/** @return the number of bytes read. */
+	public long getByteCount() { return mBytes.get(); }
+
+	/** @return the number of files which could not be digested, and files or folders which could not be read. */
+	public long getErrorCount() { return mFailed.get(); }
+
+	/**
+	 * Get the time spent generating the manifest. While running this is the time so far.
+	 *
+	 * @return the elapsed time in nanoseconds.
+	 **/
+	public long getElapsed()
+	{
+		if(mStart == 0) return 0;
+		if(mStop == 0) return System.nanoTime() - mStart;
+
+		return mStop - mStart;
+	}
+
+	/**
+	 * Get the rate files have been read.
+	 *
+	 * @return the throughput in bytes per second.
+	 **/
+	public double getThroughput()
+	{
+		long elapsed = getElapsed();
+		if(elapsed <= 0) return 0.0;
+
+		return getByteCount() * 1.0e9 / elapsed;
+	}
+
+	/**
+	 * Get the rate files have been digested.
+	 *
+	 * @return the number of files per second.
+	 **/
+	public double getFileRate()
+	{
+		long elapsed = getElapsed();
+		if(elapsed <= 0) return 0.0;
+
+		return getFileCount() * 1.0e9 / elapsed;
+	}
+}
@@ -0,0 +1,108 @@
+package igpp.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * The message digests (checksums) computed for a file in a single pass
+ * by {@link Digest#digestFile(String[], String)}. Each digest is kept as a
+ * hexadecimal string under the name of the method used to compute it.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class DigestResult {
+	String	mPathName;
+	LinkedHashMap<String, String>	mDigest = new LinkedHashMap<String, String>();
+	long	mBytes = 0;
+	long	mElapsed = 0;	// Nanoseconds
+
+	/**
+	 * Create an empty result for a file.
+	 *
+	 * @param pathName   the path to the file.
+	 **/
+	public DigestResult(String pathName)
+	{
+		mPathName = pathName;
+	}
+
+	/**
+	 * Set the digest for a method.
+	 *
+	 * @param method   the name of the digest method (i.e. "MD5").
+	 * @param digest   the digest as a hexadecimal string.
+	 **/
+	public void put(String method, String digest)
+	{
+		mDigest.put(method, digest);
+	}
+
+	/**
+	 * Get the digest for a method.
+	 *
+	 * @param method   the name of the digest method (i.e. "MD5").
+	 *
+	 * @return the digest as a hexadecimal string or null if the method was not computed.
+	 **/
+	public String get(String method)
+	{
+		return mDigest.get(method);
+	}
+
+	/**
+	 * Get the names of the methods in the order they were requested.
+	 *
+	 * @return an {@link ArrayList} of method names.
+	 **/
+	public ArrayList<String> getMethods()
+	{
+		return new ArrayList<String>(mDigest.keySet());
+	}
+
+	/** @return the path to the file. */
+	public String getPathName() { return mPathName; }
+
+	/** @return the number of bytes read. */
+	public long getBytes() { return mBytes; }
+
+	/** @return the time taken to read and digest the file in nanoseconds. */
+	public long getElapsed() { return mElapsed; }
+
+	/**
+	 * Get the rate the file was read and digested.
+	 *
+	 * @return the throughput in bytes per second. Returns 0 if no time has elapsed.
+	 **/
+	public double getThroughput()
+	{
+		if(mElapsed <= 0) return 0.0;
+
+		return mBytes * 1.0e9 / mElapsed;
+	}
+
+	/**
+	 * Create a line for a checksum manifest in the format used by md5sum and sha256sum.
+	 * See {@link DigestManifest#toManifestLine(String, String)}.
+	 *
+	 * @param method   the name of the digest method (i.e. "MD5").
+	 *
+	 * @return the line "{digest}  {path}" or null if the method was not computed.
+	 **/
+	public String toManifestLine(String method)
+	{
+		String digest = get(method);
+		if(digest == null) return null;
+
+		return DigestManifest.toManifestLine(digest, mPathName);
+	}
+
+	public String toString()
+	{
+		StringBuilder buffer = new StringBuilder(mPathName);
+		for(String method : mDigest.keySet()) {
+			buffer.append("\n").append(method).append(": ").append(mDigest.get(method));
+		}
+		return buffer.toString();
+	}
+}
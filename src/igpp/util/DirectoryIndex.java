@@ -0,0 +1,454 @@
+package igpp.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in memory index of the files in folders, for answering repeated listing queries
+ * without reading the folders again. A folder is read the first time it is queried and
+ * the names of its files are kept in sorted order, grouped by extension. The results
+ * of regular expression queries are also kept until the folder changes.
+ *<p>
+ * A folder is read again when its time of last modification changes, which happens when
+ * files are added, removed or renamed. When watching is on (see {@link #setWatching(boolean)}),
+ * a {@link WatchService} marks folders as changed and queries need not check the time.
+ * A change reported while a folder is being read marks the folder as changed again.
+ * Folders changed within {@link #RACY_TIME} of being read are checked again on the next
+ * query, since some file systems record times to the second.
+ *<p>
+ * The index can be saved to a file and loaded later. Loaded folders are checked against
+ * their time of last modification before they are used.
+ *<p>
+ * Queries return the same results as the matching methods of {@link Listing}. The index
+ * may be used by several threads at once. Set an index with {@link Listing#setIndex(DirectoryIndex)}
+ * to have {@link Listing} answer queries from it.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class DirectoryIndex {
+	/** The time in milliseconds after a change to a folder during which the folder is checked again. */
+	static public final long RACY_TIME = 2000;
+
+	static final int MAX_MATCHES = 256;	// Results kept per folder
+
+	static final int MAGIC = 0x49474449;	// "IGDI"
+	static final int VERSION = 1;
+
+	/**
+	 * The indexed contents of one folder. Replaced, not changed, when the folder is read again.
+	 **/
+	static class Folder {
+		long	mModified;
+		long	mScanned;
+		volatile boolean	mStale = false;
+		boolean	mWatched = false;
+		String[]	mName;	// Sorted
+		String[]	mUpper;	// Upper case names in the same order
+		HashMap<String, int[]>	mExtension = new HashMap<String, int[]>();
+		ConcurrentHashMap<String, int[]>	mMatch = new ConcurrentHashMap<String, int[]>();
+
+		Folder(long modified, long scanned, String[] name)
+		{
+			mModified = modified;
+			mScanned = scanned;
+			mName = name;
+			mUpper = new String[name.length];
+
+			HashMap<String, ArrayList<Integer>> group = new HashMap<String, ArrayList<Integer>>();
+			for(int i = 0; i < name.length; i++) {
+				mUpper[i] = name[i].toUpperCase();
+				int n = mUpper[i].lastIndexOf('.');
+				if(n == -1) continue;
+				String ext = mUpper[i].substring(n);
+				ArrayList<Integer> list = group.get(ext);
+				if(list == null) { list = new ArrayList<Integer>(); group.put(ext, list); }
+				list.add(i);
+			}
+			for(Map.Entry<String, ArrayList<Integer>> item : group.entrySet()) mExtension.put(item.getKey(), toArray(item.getValue()));
+		}
+	}
+
+	ConcurrentHashMap<String, Folder>	mFolder = new ConcurrentHashMap<String, Folder>();
+	volatile WatchService	mWatcher = null;
+	ConcurrentHashMap<WatchKey, String>	mWatchKey = new ConcurrentHashMap<WatchKey, String>();
+	ConcurrentHashMap<String, AtomicLong>	mChange = new ConcurrentHashMap<String, AtomicLong>();	// Events seen for each watched folder
+
+	AtomicLong	mHits = new AtomicLong();
+	AtomicLong	mScans = new AtomicLong();
+
+	public DirectoryIndex()
+	{
+	}
+
+	/**
+	 * Turn watching of indexed folders on or off. While on, a background thread
+	 * receives changes from a {@link WatchService}.
+	 *
+	 * @param watch   <code>true</code> to watch folders.
+	 *
+	 * @throws IOException if a {@link WatchService} can not be created.
+	 **/
+	public synchronized void setWatching(boolean watch)
+		throws IOException
+	{
+		if(watch == (mWatcher != null)) return;
+
+		if( ! watch) {
+			mWatcher.close();	// Ends the thread
+			mWatcher = null;
+			mWatchKey.clear();
+			mChange.clear();
+			for(Folder folder : mFolder.values()) folder.mWatched = false;
+			return;
+		}
+
+		final WatchService watcher = java.nio.file.FileSystems.getDefault().newWatchService();
+		mWatcher = watcher;
+		Thread thread = new Thread("DirectoryIndex watcher") {
+			public void run() {
+				try {
+					while(true) {
+						WatchKey key = watcher.take();
+						key.pollEvents();
+						String path = mWatchKey.get(key);
+						if(path != null) {
+							AtomicLong change = mChange.get(path);
+							if(change != null) change.incrementAndGet();	// Before marking, so a folder being read sees it
+							Folder folder = mFolder.get(path);
+							if(folder != null) folder.mStale = true;
+						}
+						if( ! key.reset()) mWatchKey.remove(key);
+					}
+				} catch(Exception e) {
+					// Closed or interrupted - stop watching
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/** @return <code>true</code> if folders are being watched. */
+	public boolean isWatching() { return mWatcher != null; }
+
+	/**
+	 * Get the files in a folder.
+	 *
+	 * @param root   the folder.
+	 *
+	 * @return Array of {@link File} items for each file, null if the folder can not be read.
+	 **/
+	public File[] getFileList(File root)
+	{
+		Folder folder = getFolder(root);
+		if(folder == null) return null;
+
+		File[] list = new File[folder.mName.length];
+		for(int i = 0; i < list.length; i++) list[i] = new File(root, folder.mName[i]);
+
+		return list;
+	}
+
+	/**
+	 * Get the files in a folder whose names end with a given extension.
+	 * The comparison is case insensitive.
+	 *
+	 * @param root        the folder.
+	 * @param extension   the end of the names to match (i.e. ".xml").
+	 *
+	 * @return Array of {@link File} items for each file, null if no files are present.
+	 **/
+	public File[] getFileListByExtension(File root, String extension)
+	{
+		if(extension == null) return null;
+		Folder folder = getFolder(root);
+		if(folder == null) return null;
+
+		String upper = extension.toUpperCase();
+		int[] index;
+		if(upper.lastIndexOf('.') == 0) {	// Exactly an extension - use the groups
+			index = folder.mExtension.get(upper);
+		} else {
+			index = folder.mMatch.get("\u0000" + upper);
+			if(index == null) {
+				ArrayList<Integer> match = new ArrayList<Integer>();
+				for(int i = 0; i < folder.mUpper.length; i++) {
+					if(folder.mUpper[i].endsWith(upper)) match.add(i);
+				}
+				index = toArray(match);
+				if(folder.mMatch.size() >= MAX_MATCHES) folder.mMatch.clear();
+				folder.mMatch.put("\u0000" + upper, index);
+			}
+		}
+
+		return toList(root, folder, index);
+	}
+
+	/**
+	 * Get the files in a folder whose names match a regular expression.
+	 *
+	 * @param root      the folder.
+	 * @param pattern   the regular expression. The whole name must match.
+	 *
+	 * @return Array of {@link File} items for each file, null if no files are present.
+	 **/
+	public File[] getFileList(File root, String pattern)
+	{
+		if(pattern == null) return null;
+		Folder folder = getFolder(root);
+		if(folder == null) return null;
+
+		int[] index = folder.mMatch.get(pattern);
+		if(index == null) {
+			NameFilter filter = NameFilter.regex(pattern);
+			ArrayList<Integer> match = new ArrayList<Integer>();
+			for(int i = 0; i < folder.mName.length; i++) {
+				if(filter.accept(folder.mName[i])) match.add(i);
+			}
+			index = toArray(match);
+			if(folder.mMatch.size() >= MAX_MATCHES) folder.mMatch.clear();
+			folder.mMatch.put(pattern, index);
+		}
+
+		return toList(root, folder, index);
+	}
+
+	/**
+	 * Get the files in a folder whose names start with a prefix. The comparison is case sensitive.
+	 *
+	 * @param root     the folder.
+	 * @param prefix   the start of the names to match.
+	 *
+	 * @return Array of {@link File} items for each file in name order, null if no files are present.
+	 **/
+	public File[] getFileListByPrefix(File root, String prefix)
+	{
+		if(prefix == null) return null;
+		Folder folder = getFolder(root);
+		if(folder == null) return null;
+
+		int start = Arrays.binarySearch(folder.mName, prefix);
+		if(start < 0) start = -start - 1;
+		int end = start;
+		while(end < folder.mName.length && folder.mName[end].startsWith(prefix)) end++;
+		if(end == start) return null;
+
+		File[] list = new File[end - start];
+		for(int i = start; i < end; i++) list[i - start] = new File(root, folder.mName[i]);
+
+		return list;
+	}
+
+	/**
+	 * Remove a folder from the index. It is read again when next queried.
+	 *
+	 * @param root   the folder.
+	 **/
+	public void invalidate(File root)
+	{
+		mFolder.remove(root.getAbsolutePath());
+	}
+
+	/**
+	 * Remove all folders from the index.
+	 **/
+	public void clear()
+	{
+		mFolder.clear();
+	}
+
+	/** @return the number of folders in the index. */
+	public int size() { return mFolder.size(); }
+
+	/** @return the number of queries answered without reading the folder. */
+	public long getHitCount() { return mHits.get(); }
+
+	/** @return the number of times a folder was read. */
+	public long getScanCount() { return mScans.get(); }
+
+	/**
+	 * Get the indexed contents of a folder, reading the folder if it is not
+	 * in the index or has changed.
+	 **/
+	private Folder getFolder(File root)
+	{
+		if(root == null) return null;
+
+		String key = root.getAbsolutePath();
+		Folder folder = mFolder.get(key);
+		if(folder != null && ! folder.mStale) {
+			if(folder.mWatched && mWatcher != null) { mHits.incrementAndGet(); return folder; }
+			long modified = root.lastModified();
+			if(modified == folder.mModified && modified < folder.mScanned - RACY_TIME) { mHits.incrementAndGet(); return folder; }
+		}
+
+		boolean watched = watch(root, key);	// Before reading, so no change is missed
+		AtomicLong change = mChange.get(key);
+		long before = (change == null) ? 0 : change.get();
+		folder = scan(root);
+		if(folder == null) {
+			mFolder.remove(key);
+			return null;
+		}
+		folder.mWatched = watched;
+		mFolder.put(key, folder);
+		if(change != null && change.get() != before) folder.mStale = true;	// Changed while reading - read again on the next query
+
+		return folder;
+	}
+
+	/**
+	 * Register a folder with the watcher.
+	 *
+	 * @return <code>true</code> if the folder is watched.
+	 **/
+	private boolean watch(File root, String key)
+	{
+		WatchService watcher = mWatcher;
+		if(watcher == null) return false;
+
+		try {
+			mChange.putIfAbsent(key, new AtomicLong());
+			WatchKey watchKey = root.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+			mWatchKey.put(watchKey, key);
+			return true;
+		} catch(Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Read the files in a folder.
+	 **/
+	private Folder scan(File root)
+	{
+		long scanned = System.currentTimeMillis();
+		long modified = root.lastModified();
+		ArrayList<String> name = new ArrayList<String>();
+
+		try {
+			DirectoryStream<Path> stream = Files.newDirectoryStream(root.toPath());
+			try {
+				for(Path path : stream) {
+					try {
+						if(Files.readAttributes(path, BasicFileAttributes.class).isRegularFile()) name.add(path.getFileName().toString());
+					} catch(IOException e) {
+						// Removed or can not be read - skip
+					}
+				}
+			} finally {
+				stream.close();
+			}
+		} catch(Exception e) {
+			return null;
+		}
+
+		mScans.incrementAndGet();
+		String[] list = name.toArray(new String[name.size()]);
+		Arrays.sort(list);
+
+		return new Folder(modified, scanned, list);
+	}
+
+	/**
+	 * Save the index to a file. The results of pattern queries are not saved.
+	 *
+	 * @param pathName   the path to the file.
+	 *
+	 * @throws IOException if the file can not be written.
+	 **/
+	public void save(String pathName)
+		throws IOException
+	{
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pathName), 65536));
+		try {
+			ArrayList<Map.Entry<String, Folder>> list = new ArrayList<Map.Entry<String, Folder>>(mFolder.entrySet());
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(list.size());
+			for(Map.Entry<String, Folder> item : list) {
+				Folder folder = item.getValue();
+				output.writeUTF(item.getKey());
+				output.writeLong(folder.mModified);
+				output.writeLong(folder.mScanned);
+				output.writeInt(folder.mName.length);
+				for(String name : folder.mName) output.writeUTF(name);
+			}
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Load an index saved with {@link #save(String)}. Folders in the file are added to
+	 * the index and are checked for changes when first queried.
+	 *
+	 * @param pathName   the path to the file.
+	 *
+	 * @throws IOException if the file can not be read.
+	 **/
+	public void load(String pathName)
+		throws IOException
+	{
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(pathName), 65536));
+		try {
+			if(input.readInt() != MAGIC) throw new IOException("Not a directory index: " + pathName);
+			if(input.readInt() != VERSION) throw new IOException("Unsupported directory index version: " + pathName);
+
+			int count = input.readInt();
+			for(int i = 0; i < count; i++) {
+				String key = input.readUTF();
+				long modified = input.readLong();
+				long scanned = input.readLong();
+				String[] name = new String[input.readInt()];
+				for(int j = 0; j < name.length; j++) name[j] = input.readUTF();
+				mFolder.put(key, new Folder(modified, scanned, name));
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Create the list of files for the indexes of names.
+	 **/
+	static private File[] toList(File root, Folder folder, int[] index)
+	{
+		if(index == null || index.length == 0) return null;
+
+		File[] list = new File[index.length];
+		for(int i = 0; i < index.length; i++) list[i] = new File(root, folder.mName[index[i]]);
+
+		return list;
+	}
+
+	static private int[] toArray(ArrayList<Integer> list)
+	{
+		int[] buffer = new int[list.size()];
+		for(int i = 0; i < buffer.length; i++) buffer[i] = list.get(i);
+
+		return buffer;
+	}
+}
@@ -0,0 +1,207 @@
+package igpp.util;
+
+import java.io.IOException;
+
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import java.util.EnumSet;
+
+/**
+ * Walk a directory tree and pass each entry to a {@link Visitor} as it is read.
+ * Unlike the methods of {@link Listing}, no array of entries is created, so directories
+ * with very many entries use little memory and the first entries are seen at once.
+ * The type, size and time of each entry are read once, with the directory entry,
+ * and given to the visitor as {@link BasicFileAttributes}.
+ *<p>
+ * The walk can be limited by depth, can include or skip hidden entries (names
+ * starting with ".") and stops when the visitor returns <code>false</code>.
+ *<p>
+ * For example, to print the first 10 files in a tree:
+ *<pre>
+ *   DirectoryWalker walker = new DirectoryWalker();
+ *   walker.walk("/data", new DirectoryWalker.Visitor() {
+ *      int count = 0;
+ *      public boolean visit(Path path, BasicFileAttributes attributes) {
+ *         System.out.println(path);
+ *         return ++count &lt; 10;
+ *      }
+ *   });
+ *</pre>
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class DirectoryWalker {
+	/** Include hidden files and folders. */
+	static public final int HIDDEN_INCLUDE = 0;
+	/** Skip hidden folders but include hidden files. This is the rule used by {@link Listing}. */
+	static public final int HIDDEN_SKIP_FOLDERS = 1;
+	/** Skip hidden files and folders. */
+	static public final int HIDDEN_SKIP = 2;
+
+	/**
+	 * Receives each entry found in a walk.
+	 **/
+	public interface Visitor {
+		/**
+		 * Called for each entry.
+		 *
+		 * @param path         the path to the entry.
+		 * @param attributes   the attributes of the entry.
+		 *
+		 * @return <code>true</code> to continue the walk, <code>false</code> to stop.
+		 **/
+		boolean visit(Path path, BasicFileAttributes attributes);
+	}
+
+	int	mMaxDepth = Integer.MAX_VALUE;
+	int	mHidden = HIDDEN_SKIP_FOLDERS;
+	boolean	mFiles = true;
+	boolean	mFolders = false;
+	boolean	mFollowLinks = false;
+
+	long	mVisited = 0;
+	long	mErrors = 0;
+
+	public DirectoryWalker()
+	{
+	}
+
+	/**
+	 * Set how deep the walk goes. A depth of 1 visits only the entries in the root folder.
+	 * The default is no limit.
+	 *
+	 * @param depth   the maximum depth.
+	 **/
+	public void setMaxDepth(int depth)
+	{
+		if(depth < 0) throw new IllegalArgumentException("Depth must not be negative");
+		mMaxDepth = depth;
+	}
+
+	/**
+	 * Set the rule for hidden entries (names starting with ".").
+	 *
+	 * @param rule   one of {@link #HIDDEN_INCLUDE}, {@link #HIDDEN_SKIP_FOLDERS} (the default) or {@link #HIDDEN_SKIP}.
+	 **/
+	public void setHidden(int rule)
+	{
+		if(rule < HIDDEN_INCLUDE || rule > HIDDEN_SKIP) throw new IllegalArgumentException("Unknown rule: " + rule);
+		mHidden = rule;
+	}
+
+	/**
+	 * Set whether files are passed to the visitor. The default is <code>true</code>.
+	 *
+	 * @param files   <code>true</code> to visit files.
+	 **/
+	public void setFiles(boolean files) { mFiles = files; }
+
+	/**
+	 * Set whether folders are passed to the visitor. Folders are visited before the
+	 * entries they contain. The root is not visited. The default is <code>false</code>.
+	 *
+	 * @param folders   <code>true</code> to visit folders.
+	 **/
+	public void setFolders(boolean folders) { mFolders = folders; }
+
+	/**
+	 * Set whether symbolic links are followed. The default is <code>false</code>.
+	 *
+	 * @param follow   <code>true</code> to follow links.
+	 **/
+	public void setFollowLinks(boolean follow) { mFollowLinks = follow; }
+
+	/**
+	 * Walk a tree. Entries below the root which can not be read, including folders
+	 * whose entries can not be read in full, are skipped and counted (see {@link #getErrorCount()}).
+	 *
+	 * @param pathName   the path to the root of the tree.
+	 * @param visitor    the {@link Visitor} to receive each entry.
+	 *
+	 * @return <code>true</code> if the walk completed, <code>false</code> if the visitor stopped it.
+	 *
+	 * @throws IOException if the root can not be read.
+	 **/
+	public boolean walk(String pathName, final Visitor visitor)
+		throws IOException
+	{
+		final Path root = Paths.get(pathName);
+		final boolean[] stopped = { false };
+		EnumSet<FileVisitOption> options = EnumSet.noneOf(FileVisitOption.class);
+		if(mFollowLinks) options.add(FileVisitOption.FOLLOW_LINKS);
+
+		mVisited = 0;
+		mErrors = 0;
+
+		Files.walkFileTree(root, options, mMaxDepth, new SimpleFileVisitor<Path>() {
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+				if(dir.equals(root)) return FileVisitResult.CONTINUE;
+				if(mHidden != HIDDEN_INCLUDE && isHidden(dir)) return FileVisitResult.SKIP_SUBTREE;
+				return folder(dir, attributes);
+			}
+
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+				if(attributes.isDirectory()) {	// Folder at the depth limit
+					if(mHidden != HIDDEN_INCLUDE && isHidden(file)) return FileVisitResult.CONTINUE;
+					return folder(file, attributes);
+				}
+				if( ! mFiles) return FileVisitResult.CONTINUE;
+				if(mHidden == HIDDEN_SKIP && isHidden(file)) return FileVisitResult.CONTINUE;
+				return visit(file, attributes);
+			}
+
+			public FileVisitResult visitFileFailed(Path file, IOException e)
+				throws IOException
+			{
+				if(file.equals(root)) throw e;
+				mErrors++;
+				return FileVisitResult.CONTINUE;
+			}
+
+			public FileVisitResult postVisitDirectory(Path dir, IOException e)
+				throws IOException
+			{
+				if(e == null) return FileVisitResult.CONTINUE;
+				if(dir.equals(root)) throw e;
+				mErrors++;	// Entries read before the error were visited
+				return FileVisitResult.CONTINUE;
+			}
+
+			private FileVisitResult folder(Path dir, BasicFileAttributes attributes) {
+				if( ! mFolders) return FileVisitResult.CONTINUE;
+				return visit(dir, attributes);
+			}
+
+			private FileVisitResult visit(Path path, BasicFileAttributes attributes) {
+				mVisited++;
+				if(visitor.visit(path, attributes)) return FileVisitResult.CONTINUE;
+				stopped[0] = true;
+				return FileVisitResult.TERMINATE;
+			}
+		});
+
+		return ! stopped[0];
+	}
+
+	/**
+	 * Determine if an entry is hidden.
+	 **/
+	static private boolean isHidden(Path path)
+	{
+		Path name = path.getFileName();
+		return name != null && name.toString().startsWith(".");
+	}
+
+	/** @return the number of entries passed to the visitor in the last walk. */
+	public long getVisitedCount() { return mVisited; }
+
+	/** @return the number of entries which could not be read in the last walk. */
+	public long getErrorCount() { return mErrors; }
+}
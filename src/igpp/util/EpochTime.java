@@ -0,0 +1,480 @@
+package igpp.util;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.TimeZone;
+
+import java.text.SimpleDateFormat;
+
+/**
+ * An immutable time value stored as a count of nanoseconds since the
+ * epoch (1970-01-01T00:00:00Z). EpochTime uses the same pattern vocabulary as
+ * {@link MultiTime} for {@link #convert(String, String)} and {@link #format(String)},
+ * but comparisons and arithmetic work on a single long so no {@link Calendar}
+ * objects are cloned or created.
+ *<p>
+ * A long can hold nanoseconds for the years 1677 through 2262. The special values
+ * "LAUNCH" and "EOM" are represented by {@link #DAWN} and {@link #ETERNITY}, and
+ * times outside the range are limited to those values.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ * @since 1.0
+ */
+public class EpochTime implements Comparable<EpochTime> {
+	static final long NANOS_PER_SECOND = 1000000000L;
+	static final long NANOS_PER_MILLI = 1000000L;
+	static final long SECONDS_PER_DAY = 86400L;
+
+	/** The earliest possible time. Used for "LAUNCH". */
+	static public final EpochTime DAWN = new EpochTime(Long.MIN_VALUE + 1);
+
+	/** The latest possible time. Used for "EOM". */
+	static public final EpochTime ETERNITY = new EpochTime(Long.MAX_VALUE);
+
+	static private TimeZone mGMT = TimeZone.getTimeZone("GMT-0:00");
+
+	/** Converters kept per thread for {@link #parse(String, String)}. */
+	static final int MAX_CONVERTERS = 64;
+
+	static private ThreadLocal<HashMap<String, TimeConverter>>	mConverters = new ThreadLocal<HashMap<String, TimeConverter>>() {
+		protected HashMap<String, TimeConverter> initialValue() { return new HashMap<String, TimeConverter>(); }
+	};
+
+	private final long mNanos;
+
+	/**
+	 * Creates an instance of a time value.
+	 *
+	 * @param nanos   the number of nanoseconds since the epoch.
+	 *
+	 * @since 1.0
+	 */
+	public EpochTime(long nanos)
+	{
+		mNanos = nanos;
+	}
+
+	/**
+	 * Execute the class from the command line
+	 **/
+	public static void main(String[] args)
+	{
+		// Check arguments
+		if(args.length < 3) {
+			System.out.println("Usage: EpochTime TimeString InFormat OutFormat");
+			return;
+		}
+
+		EpochTime time = convert(MultiTime.findSpec(args[1]), args[0]);
+		if(time == null) {
+			System.out.println("Unable to parse: " + args[0]);
+			return;
+		}
+
+		System.out.println("Nanos: " + time.getEpochNanos());
+		System.out.println("Binary: " + time.format(MultiTime.BINARY));
+		System.out.println(args[2] + ": " + time.format(MultiTime.findSpec(args[2])));
+	}
+
+	/**
+	 * Create a time value from a count of milliseconds since the epoch.
+	 *
+	 * @param millis   the number of milliseconds since the epoch.
+	 *
+	 * @return the time value.
+	 **/
+	static public EpochTime ofMillis(long millis)
+	{
+		return new EpochTime(saturate(millis, NANOS_PER_MILLI, 0));
+	}
+
+	/**
+	 * Create a time value from a count of seconds since the epoch.
+	 *
+	 * @param seconds   the number of seconds since the epoch.
+	 * @param nano   the fraction of a second in nanoseconds.
+	 *
+	 * @return the time value.
+	 **/
+	static public EpochTime ofSeconds(long seconds, long nano)
+	{
+		return new EpochTime(saturate(seconds, NANOS_PER_SECOND, nano));
+	}
+
+	/**
+	 * Create a time value set to the current system time.
+	 *
+	 * @return the time value.
+	 **/
+	static public EpochTime now()
+	{
+		return ofMillis(System.currentTimeMillis());
+	}
+
+	/**
+	 * Create a time value from a {@link Calendar}.
+	 *
+	 * @param cal   the {@link Calendar} set with the date and time.
+	 *
+	 * @return the time value.
+	 **/
+	static public EpochTime fromCalendar(Calendar cal)
+	{
+		return ofMillis(cal.getTimeInMillis());
+	}
+
+	/**
+	 * Create a time value from a {@link MultiTime}.
+	 *
+	 * @param time   the {@link MultiTime} set with the date and time.
+	 *
+	 * @return the time value.
+	 **/
+	static public EpochTime fromMultiTime(MultiTime time)
+	{
+		return ofMillis(time.mDate.getTimeInMillis());
+	}
+
+	/**
+	 * Parses a string into a time value using the given pattern.
+	 * The pattern can be specified using one of the predefined
+	 * formats of {@link MultiTime} or it can be specified using the syntax used
+	 * by {@link SimpleDateFormat}. The following patterns
+	 * have special interpretation:
+	 *<dl>
+	 *<dt>B[year]</dt><dd>Binary time. Count of seconds from January 1 of the year. Default is 1966 (Cline Time).</dd>
+	 *<dt>T</dt><dd>ISO8601 time. Format is YYYY-MM-DDTHH:mm:SS.sss or YYYY-DOYTHH:mm:SS.sss with omissions.</dd>
+	 *</dl>
+	 * The values "EOM" and "LAUNCH" return {@link #ETERNITY} and {@link #DAWN}.
+	 *
+	 * @param pattern	the text containing the pattern to parse buffer with.
+	 * @param buffer	the text containing the string to parse.
+	 *
+	 * @return	the time value or null if the string could not be parsed.
+	 *
+	 * @since 1.0
+	 */
+	static public EpochTime convert(String pattern, String buffer)
+	{
+		long nanos = parse(pattern, buffer);
+		if(nanos == TimeParser.INVALID) return null;
+
+		return new EpochTime(nanos);
+	}
+
+	/**
+	 * Parses a string into a count of nanoseconds since the epoch.
+	 * See {@link #convert(String, String)} for the allowed patterns.
+	 *
+	 * @param pattern	the text containing the pattern to parse buffer with.
+	 * @param buffer	the text containing the string to parse.
+	 *
+	 * @return	the count of nanoseconds or {@link TimeParser#INVALID} if the string could not be parsed.
+	 *
+	 * @since 1.0
+	 */
+	static public long parse(String pattern, String buffer)
+	{
+		if(buffer == null || buffer.length() == 0) return TimeParser.INVALID;
+		if(pattern == null || pattern.length() == 0) return TimeParser.INVALID;
+
+		try {
+			return getConverter(pattern).parse(buffer);
+		} catch(Exception e) {
+			return TimeParser.INVALID;
+		}
+	}
+
+	/**
+	 * Get the converter for a pattern, reusing one made earlier on the same thread.
+	 **/
+	static private TimeConverter getConverter(String pattern)
+	{
+		HashMap<String, TimeConverter> map = mConverters.get();
+		TimeConverter converter = map.get(pattern);
+		if(converter == null) {
+			converter = new TimeConverter(pattern);
+			if(map.size() >= MAX_CONVERTERS) map.clear();
+			map.put(pattern, converter);
+		}
+
+		return converter;
+	}
+
+	/**
+	 * Formats the time in the requested format and returns the string.
+	 * See {@link #convert(String, String)} for the allowed patterns.
+	 *
+	 * @param pattern	the text containing the pattern to format the time as.
+	 *
+	 * @return	a string containing the formatted time value.
+	 *
+	 * @since 1.0
+	 */
+	public String format(String pattern)
+	{
+		int n;
+
+		if(pattern == null) return "Invalid pattern";
+
+		if(pattern.charAt(0) == 'B') {	// Special case - binary seconds from reference year
+			long milli = getEpochMillis() - getReference(pattern) * 1000L;
+			long seconds = Math.floorDiv(milli, 1000L);
+			StringBuilder buffer = new StringBuilder(16);
+			buffer.append(seconds).append('.');
+			appendDigits(buffer, Math.floorMod(milli, 1000L), 3);
+			return buffer.toString();
+		} else if(pattern.compareTo("T") == 0) {	// Full time format
+			return toISO8601();
+		} else if((n = pattern.indexOf('T')) != -1) {	// Treat as two part pattern split by "T"
+			java.util.Date date = toDate();
+			StringBuilder buffer = new StringBuilder();
+			if(n > 0) buffer.append(DateFormatCache.format(date, pattern.substring(0, n), mGMT));
+			buffer.append('T');
+			if(n + 1 < pattern.length()) buffer.append(DateFormatCache.format(date, pattern.substring(n + 1), mGMT));
+			return buffer.toString();
+		}
+
+		return DateFormatCache.format(toDate(), pattern, mGMT);
+	}
+
+	/**
+	 * Format the time as an ISO-8601 string with the form YYYY-MM-DDTHH:mm:SS.sss.
+	 *
+	 * @return a string containing the formatted time value.
+	 **/
+	public String toISO8601()
+	{
+		long seconds = getEpochSecond();
+		long day = Math.floorDiv(seconds, SECONDS_PER_DAY);
+		int secs = (int) Math.floorMod(seconds, SECONDS_PER_DAY);
+
+		// Convert days to a civil date (March based years)
+		long z = day + 719468;
+		long era = Math.floorDiv(z, 146097);
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		long dom = doy - (153 * mp + 2) / 5 + 1;
+		long month = mp < 10 ? mp + 3 : mp - 9;
+		long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+		StringBuilder buffer = new StringBuilder(23);
+		appendDigits(buffer, year, 4);
+		buffer.append('-');
+		appendDigits(buffer, month, 2);
+		buffer.append('-');
+		appendDigits(buffer, dom, 2);
+		buffer.append('T');
+		appendDigits(buffer, secs / 3600, 2);
+		buffer.append(':');
+		appendDigits(buffer, (secs / 60) % 60, 2);
+		buffer.append(':');
+		appendDigits(buffer, secs % 60, 2);
+		buffer.append('.');
+		appendDigits(buffer, getNano() / NANOS_PER_MILLI, 3);
+
+		return buffer.toString();
+	}
+
+	/**
+	 * Compare a time to this instance for ordering.
+	 *
+	 * @param anotherTime	the EpochTime to compare to this time.
+	 *
+	 * @return	the value 0 if the passed argument is equal to
+	 *			this instance; a value less than 0 if the this instance
+	 *			is before the passed argument; and a value greater than 0 if
+	 *			the this instance is after the passed argument.
+	 *
+	 * @since 1.0
+	 */
+	public int compareTo(EpochTime anotherTime)
+	{
+		return Long.compare(mNanos, anotherTime.mNanos);
+	}
+
+	public boolean equals(Object obj)
+	{
+		if(this == obj) return true;
+		if( ! (obj instanceof EpochTime)) return false;
+
+		return mNanos == ((EpochTime) obj).mNanos;
+	}
+
+	public int hashCode()
+	{
+		return (int) (mNanos ^ (mNanos >>> 32));
+	}
+
+	public String toString()
+	{
+		return toISO8601();
+	}
+
+	/**
+	 * Returns the number of milliseconds between a time and this time.
+	 *
+	 * @param other	the instance of the EpochTime to compare to.
+	 *
+	 * @since 1.0
+	 */
+	public long span(EpochTime other)
+	{
+		return Math.floorDiv(mNanos - other.mNanos, NANOS_PER_MILLI);
+	}
+
+	/**
+	 * Returns the number of nanoseconds between a time and this time.
+	 *
+	 * @param other	the instance of the EpochTime to compare to.
+	 *
+	 * @since 1.0
+	 */
+	public long spanNanos(EpochTime other)
+	{
+		return mNanos - other.mNanos;
+	}
+
+	/**
+	 * Returns a time advanced by a specified number of minutes.
+	 *
+	 * @param minutes	the number of minutes to advance the time by.
+	 *					The value may include a fractional minute.
+	 *
+	 * @return the advanced time.
+	 *
+	 * @since 1.0
+	 */
+	public EpochTime advance(double minutes)
+	{
+		return plusNanos(Math.round(minutes * 60.0 * NANOS_PER_SECOND));
+	}
+
+	/**
+	 * Returns a time advanced by a number of milliseconds.
+	 *
+	 * @param millis	the number of milliseconds to add. May be negative.
+	 *
+	 * @return the advanced time.
+	 **/
+	public EpochTime plusMillis(long millis)
+	{
+		return plusNanos(saturate(millis, NANOS_PER_MILLI, 0));
+	}
+
+	/**
+	 * Returns a time advanced by a number of nanoseconds.
+	 * The result is limited to the range of {@link #DAWN} to {@link #ETERNITY}.
+	 *
+	 * @param nanos	the number of nanoseconds to add. May be negative.
+	 *
+	 * @return the advanced time.
+	 **/
+	public EpochTime plusNanos(long nanos)
+	{
+		if(nanos == 0) return this;
+
+		long sum = mNanos + nanos;
+		if(((mNanos ^ sum) & (nanos ^ sum)) < 0) sum = (nanos < 0) ? DAWN.mNanos : ETERNITY.mNanos;	// Overflow
+		if(sum < DAWN.mNanos) sum = DAWN.mNanos;
+
+		return new EpochTime(sum);
+	}
+
+	/** @return <code>true</code> if this time is before another time. */
+	public boolean isBefore(EpochTime other) { return mNanos < other.mNanos; }
+
+	/** @return <code>true</code> if this time is after another time. */
+	public boolean isAfter(EpochTime other) { return mNanos > other.mNanos; }
+
+	/** @return the number of nanoseconds since the epoch. */
+	public long getEpochNanos() { return mNanos; }
+
+	/** @return the number of milliseconds since the epoch. */
+	public long getEpochMillis() { return Math.floorDiv(mNanos, NANOS_PER_MILLI); }
+
+	/** @return the number of seconds since the epoch. */
+	public long getEpochSecond() { return Math.floorDiv(mNanos, NANOS_PER_SECOND); }
+
+	/** @return the fraction of a second in nanoseconds. */
+	public long getNano() { return Math.floorMod(mNanos, NANOS_PER_SECOND); }
+
+	/**
+	 * Convert to a {@link java.util.Date}.
+	 *
+	 * @return a {@link java.util.Date} set to this time with millisecond resolution.
+	 **/
+	public java.util.Date toDate()
+	{
+		return new java.util.Date(getEpochMillis());
+	}
+
+	/**
+	 * Convert to a {@link Calendar} in the GMT time zone.
+	 *
+	 * @return a {@link Calendar} set to this time with millisecond resolution.
+	 **/
+	public Calendar toCalendar()
+	{
+		Calendar cal = new GregorianCalendar(mGMT);
+		cal.setTimeInMillis(getEpochMillis());
+
+		return cal;
+	}
+
+	/**
+	 * Convert to a {@link MultiTime}. {@link #DAWN} and {@link #ETERNITY} are
+	 * converted with {@link MultiTime#dawn()} and {@link MultiTime#eternity()}.
+	 *
+	 * @return a {@link MultiTime} set to this time with millisecond resolution.
+	 **/
+	public MultiTime toMultiTime()
+	{
+		MultiTime time = new MultiTime();
+
+		if(mNanos == DAWN.mNanos) time.dawn();
+		else if(mNanos == ETERNITY.mNanos) time.eternity();
+		else time.mDate.setTimeInMillis(getEpochMillis());
+
+		return time;
+	}
+
+	/**
+	 * Determine the number of seconds from the epoch to January 1 of the
+	 * reference year of a binary time pattern ("B" or "Byyyy").
+	 **/
+	static private long getReference(String pattern)
+	{
+		int year;
+
+		if(pattern.length() < 5) year = 1966;	// Cline Time
+		else year = Integer.parseInt(pattern.substring(1));
+
+		return TimeParser.toEpochDay(year, 1, 1) * SECONDS_PER_DAY;
+	}
+
+	/**
+	 * Compute value * scale + offset limited to the range of {@link #DAWN} to {@link #ETERNITY}.
+	 **/
+	static private long saturate(long value, long scale, long offset)
+	{
+		if(value > (Long.MAX_VALUE - offset) / scale) return Long.MAX_VALUE;
+		if(value < (Long.MIN_VALUE + 1 + scale) / scale) return Long.MIN_VALUE + 1;
+
+		return value * scale + offset;
+	}
+
+	/**
+	 * Append a non-negative value zero padded to a minimum number of digits.
+	 **/
+	static private void appendDigits(StringBuilder buffer, long value, int width)
+	{
+		String digits = Long.toString(value);
+		for(int i = digits.length(); i < width; i++) buffer.append('0');
+		buffer.append(digits);
+	}
+}
@@ -1,7 +1,5 @@
 package igpp.util;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 
 import java.lang.NullPointerException;
@@ -23,7 +21,9 @@ public class File extends java.lang.Object {
 	/**
 	 * Copy a file from one location to another. 
 	 * The copy is failure safe in that if the copy fails to complete
-	 * the destination is not over written.
+	 * the destination is not over written. The copy is written to a temporary
+	 * file next to the destination which then replaces the destination.
+	 * See {@link FileCopy} for the details and for copying with other options.
 	 * 
 	 * @param source	the name of the source file.
 	 * @param destination	the name of the file to copy the source file to.
@@ -34,7 +34,6 @@ public class File extends java.lang.Object {
 	 	throws NullPointerException, IOException, SecurityException 
 	 {
 	 	String	path = "";
-	 	long		copied = 0;
 
 		java.io.File dir = new java.io.File (".");
 		path = dir.getCanonicalPath();
@@ -45,25 +44,7 @@ public class File extends java.lang.Object {
 			path = destination;
 		}
 		
-		java.io.File outFile = new java.io.File(path);
-		outFile.delete();	// Remove file if it exists
-		
-		// copy to file
-		FileInputStream reader = new FileInputStream(source);
-		FileOutputStream writer =	new FileOutputStream(path);
-		
-		// Now copy the bytes
-		byte[]	buffer = new byte[1024];
-		int		n;
-		
-		while ((n = reader.read(buffer, 0, 1024)) > 0) {
-			writer.write(buffer, 0, n);
-			copied += n;
-		}
-		reader.close();
-		writer.close();
-
-		return copied;
+		return new FileCopy().copy(source, path);
 	}
 
 	/**
@@ -318,7 +299,7 @@ public class File extends java.lang.Object {
 	 {
 		 String digest = "";
 		 try {
-			 digest = igpp.util.Digest.digestFile(pathname, "SHA-1");
+			 digest = igpp.util.Digest.digestFile("SHA-1", pathname);
 		 } catch(Exception e) {
 			 digest = "";
 		 }
@@ -339,7 +320,7 @@ public class File extends java.lang.Object {
 	 {
 		 String digest = "";
 		 try {
-			 digest = igpp.util.Digest.digestFile(pathname, "SHA-256");
+			 digest = igpp.util.Digest.digestFile("SHA-256", pathname);
 		 } catch(Exception e) {
 			 digest = "";
 		 }
@@ -360,12 +341,31 @@ public class File extends java.lang.Object {
 	 {
 		 String digest = "";
 		 try {
-			 digest = igpp.util.Digest.digestFile(pathname, "SHA-512");
+			 digest = igpp.util.Digest.digestFile("SHA-512", pathname);
 		 } catch(Exception e) {
 			 digest = "";
 		 }
 		 
 		 return digest;
 	 }	 
+
+	/**
+	 * Return several digests for a file with one pass over the file.
+	 * This is a convenience function and calls igpp.util.Digest.digestFile() 
+	 * 
+	 * @param pathname	the name of the filesystem object.
+	 * @param methods	the names of the digest methods (i.e. "MD5", "SHA-256").
+	 *
+	 * @return		a {@link DigestResult} containing the digests for a file. If the digests cannot be calculated null is returned.
+	 *
+	 */
+	 static public DigestResult getDigests(String pathname, String... methods)
+	 {
+		 try {
+			 return igpp.util.Digest.digestFile(methods, pathname);
+		 } catch(Exception e) {
+			 return null;
+		 }
+	 }	 
 }
 
@@ -7,6 +7,9 @@ import java.util.Comparator;
  * A {@link Comparator} for {@link File} objects.
  * Can sort on different attributes of a file and perform
  * both ascending and descending sorts.
+ * The attributes are read from the file system at each comparison.
+ * To sort large lists use {@link Listing#getSortedList(File[], int[], int[])}
+ * which reads the attributes of each file once.
  *
  * @author Todd King
  * @version 1.00 2009
@@ -15,6 +18,7 @@ public class FileComparator implements Comparator
 {
 	public static final int FileName = 0;
 	public static final int FileLastModified = 1;
+	public static final int FileSize = 2;
 	
 	public static final int SortAscending = 0;
 	public static final int SortDecending = 1;
@@ -47,14 +51,18 @@ public class FileComparator implements Comparator
 				case FileName:
 			      return (f1.getName().compareTo(f2.getName()));
 			   case FileLastModified:
-			      return (int) (f1.lastModified() - f2.lastModified());		      	
+			      return Long.compare(f1.lastModified(), f2.lastModified());
+			   case FileSize:
+			      return Long.compare(f1.length(), f2.length());
 			}
 		} else { // SortDecending
 			switch(mSortOn) {
 				case FileName:
 			      return (f2.getName().compareTo(f1.getName()));
 			   case FileLastModified:
-			      return (int) (f2.lastModified() - f1.lastModified());		      	
+			      return Long.compare(f2.lastModified(), f1.lastModified());
+			   case FileSize:
+			      return Long.compare(f2.length(), f1.length());
 			}
 		}
 		return 0;	// Same
@@ -0,0 +1,274 @@
+package igpp.util;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.security.MessageDigest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copy files safely and quickly. The data is transferred channel to channel
+ * with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * which lets the operating system copy without passing the data through Java
+ * (for example with sendfile or copy_file_range on Linux). If a transfer is not possible
+ * the data is copied through a large direct buffer.
+ *<p>
+ * The copy is written to a temporary file next to the destination, forced to storage
+ * and then renamed over the destination in one step. If the copy fails the
+ * destination is unchanged and the temporary file is removed.
+ *<p>
+ * The counters accumulate over all copies made with an instance and may be
+ * read while copies are in progress. An instance may be used by several threads at once.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class FileCopy {
+	/** The size of the buffer used when a transfer is not possible. */
+	static public final int BUFFER_SIZE = 1024 * 1024;
+
+	static private ThreadLocal<ByteBuffer> mBuffer = new ThreadLocal<ByteBuffer>() {
+		protected ByteBuffer initialValue() { return ByteBuffer.allocateDirect(BUFFER_SIZE); }
+	};
+
+	/** The largest amount transferred between reports of progress. */
+	static final long TRANSFER_SIZE = 64L * 1024L * 1024L;
+
+	/**
+	 * Receives the number of bytes copied so far while a file is copied.
+	 **/
+	interface Progress {
+		void copied(long bytes);
+	}
+
+	boolean	mTransfer = true;
+	boolean	mSync = true;
+	boolean	mPreserveTime = false;
+
+	AtomicLong	mFiles = new AtomicLong();
+	AtomicLong	mBytes = new AtomicLong();
+	AtomicLong	mElapsed = new AtomicLong();
+
+	public FileCopy()
+	{
+	}
+
+	/**
+	 * Set whether channel to channel transfer is used. When <code>false</code>
+	 * data is always copied through a buffer. The default is <code>true</code>.
+	 *
+	 * @param transfer   <code>true</code> to use transfer.
+	 **/
+	public void setTransfer(boolean transfer) { mTransfer = transfer; }
+
+	/**
+	 * Set whether a copy is forced to storage before it is renamed into place.
+	 * Turning this off is faster but a copy may be lost if the system fails soon after.
+	 * The default is <code>true</code>.
+	 *
+	 * @param sync   <code>true</code> to force copies to storage.
+	 **/
+	public void setSync(boolean sync) { mSync = sync; }
+
+	/**
+	 * Set whether the time of last modification of the source is given to the copy.
+	 * The default is <code>false</code>.
+	 *
+	 * @param preserve   <code>true</code> to preserve the time.
+	 **/
+	public void setPreserveTime(boolean preserve) { mPreserveTime = preserve; }
+
+	/**
+	 * Copy a file. The destination is replaced if it exists.
+	 *
+	 * @param source        the path to the source file.
+	 * @param destination   the path to the file to copy the source file to.
+	 *
+	 * @return the number of bytes copied.
+	 *
+	 * @throws IOException if the copy fails. The destination is not changed.
+	 **/
+	public long copy(String source, String destination)
+		throws IOException
+	{
+		return copy(source, destination, null, null);
+	}
+
+	/**
+	 * Copy a file and create message digests of the data in the same pass.
+	 * The data is copied through a buffer so it can be digested, rather than transferred.
+	 *
+	 * @param source        the path to the source file.
+	 * @param destination   the path to the file to copy the source file to.
+	 * @param methods       the names of the digest methods (i.e. "MD5", "SHA-256").
+	 *
+	 * @return a {@link DigestResult} for the source with the number of bytes copied.
+	 *
+	 * @throws Exception if a method is not supported or the copy fails. The destination is not changed.
+	 **/
+	public DigestResult copy(String source, String destination, String[] methods)
+		throws Exception
+	{
+		MessageDigest[] maker = new MessageDigest[methods.length];
+		for(int i = 0; i < methods.length; i++) maker[i] = MessageDigest.getInstance(methods[i]);
+
+		long start = System.nanoTime();
+		DigestResult result = new DigestResult(source);
+		result.mBytes = copy(source, destination, maker, null);
+		for(int i = 0; i < methods.length; i++) result.put(methods[i], Digest.byteArrayToHexString(maker[i].digest()));
+		result.mElapsed = System.nanoTime() - start;
+
+		return result;
+	}
+
+	/**
+	 * Copy a file, passing the data to digests if any are given and reporting progress.
+	 **/
+	long copy(String source, String destination, MessageDigest[] maker, Progress progress)
+		throws IOException
+	{
+		long start = System.nanoTime();
+		Path from = Paths.get(source);
+		Path to = Paths.get(destination).toAbsolutePath();
+		Path temp = to.resolveSibling("." + to.getFileName() + "." + Long.toHexString(start) + "-" + Thread.currentThread().getId() + ".tmp");
+		long copied = 0;
+
+		try {
+			FileChannel input = FileChannel.open(from, StandardOpenOption.READ);
+			try {
+				FileChannel output = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+				try {
+					copied = copy(input, output, maker, progress);
+					if(mSync) output.force(true);
+				} finally {
+					output.close();
+				}
+			} finally {
+				input.close();
+			}
+
+			if(mPreserveTime) Files.setLastModifiedTime(temp, Files.getLastModifiedTime(from));
+			publish(temp, to);
+		} catch(IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		} catch(RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+
+		mFiles.incrementAndGet();
+		mBytes.addAndGet(copied);
+		mElapsed.addAndGet(System.nanoTime() - start);
+
+		return copied;
+	}
+
+	/**
+	 * Copy the contents of one channel to another. Transfer is used if possible
+	 * and the remainder is copied through a buffer. If there are digests
+	 * all data is copied through the buffer.
+	 **/
+	private long copy(FileChannel input, FileChannel output, MessageDigest[] maker, Progress progress)
+		throws IOException
+	{
+		long size = input.size();
+		long position = 0;
+		long n;
+
+		if(mTransfer && maker == null) {
+			try {
+				while(position < size) {
+					n = input.transferTo(position, Math.min(size - position, TRANSFER_SIZE), output);
+					if(n <= 0) break;	// Not transferred - finish with buffer
+					position += n;
+					if(progress != null) progress.copied(position);
+				}
+			} catch(IOException e) {
+				// Transfer not supported - copy through buffer from where it stopped
+			}
+		}
+
+		ByteBuffer buffer = mBuffer.get();
+		long reported = position;
+		output.position(position);
+		while(true) {
+			buffer.clear();
+			if(input.read(buffer, position) == -1) break;
+			buffer.flip();
+			if(maker != null) {
+				for(int i = 0; i < maker.length; i++) {
+					buffer.rewind();
+					maker[i].update(buffer);
+				}
+				buffer.rewind();
+			}
+			while(buffer.hasRemaining()) position += output.write(buffer);
+			if(progress != null && position - reported >= TRANSFER_SIZE) {
+				progress.copied(position);
+				reported = position;
+			}
+		}
+		if(progress != null && reported != position) progress.copied(position);
+
+		return position;
+	}
+
+	/**
+	 * Rename a copy into place. The rename is atomic if the file system allows it.
+	 * The directory is forced to storage so the rename is not lost.
+	 **/
+	private void publish(Path temp, Path to)
+		throws IOException
+	{
+		try {
+			Files.move(temp, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch(AtomicMoveNotSupportedException e) {
+			Files.move(temp, to, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		if( ! mSync) return;
+		try {
+			FileChannel dir = FileChannel.open(to.getParent(), StandardOpenOption.READ);
+			try { dir.force(true); } finally { dir.close(); }
+		} catch(IOException e) {
+			// Not all systems allow a directory to be opened - nothing more to do
+		}
+	}
+
+	/** @return the number of files copied. */
+	public long getFileCount() { return mFiles.get(); }
+
+	/** @return the number of bytes copied. */
+	public long getByteCount() { return mBytes.get(); }
+
+	/**
+	 * Get the time spent copying. When several threads copy at once this is
+	 * the sum of the time spent by each thread.
+	 *
+	 * @return the time in nanoseconds.
+	 **/
+	public long getElapsed() { return mElapsed.get(); }
+
+	/**
+	 * Get the rate of copying.
+	 *
+	 * @return the number of bytes copied per second of copying.
+	 **/
+	public double getThroughput()
+	{
+		long elapsed = mElapsed.get();
+		if(elapsed <= 0) return 0.0;
+
+		return mBytes.get() * 1.0e9 / elapsed;
+	}
+}
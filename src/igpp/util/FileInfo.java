@@ -0,0 +1,134 @@
+package igpp.util;
+
+import java.io.File;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import java.util.Comparator;
+
+/**
+ * The name, size and time of last modification of a file, read once.
+ * Sorting or selecting on a FileInfo compares the stored values rather than
+ * asking the file system for the attributes at each comparison.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class FileInfo {
+	File	mFile;
+	String	mName;
+	long	mLastModified;
+	long	mSize;
+
+	/**
+	 * Create the information for a file from attributes already read.
+	 *
+	 * @param path         the path to the file.
+	 * @param attributes   the attributes of the file.
+	 **/
+	public FileInfo(Path path, BasicFileAttributes attributes)
+	{
+		mFile = path.toFile();
+		mName = path.getFileName().toString();
+		mLastModified = attributes.lastModifiedTime().toMillis();
+		mSize = attributes.size();
+	}
+
+	/**
+	 * Create the information for a file by reading its attributes.
+	 *
+	 * @param file   the file.
+	 **/
+	public FileInfo(File file)
+	{
+		mFile = file;
+		mName = file.getName();
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			mLastModified = attributes.lastModifiedTime().toMillis();
+			mSize = attributes.size();
+		} catch(Exception e) {
+			mLastModified = 0;	// As File.lastModified()
+			mSize = 0;
+		}
+	}
+
+	/**
+	 * Create the information for a file without reading its attributes.
+	 * Only the name is set.
+	 **/
+	FileInfo(File file, boolean read)
+	{
+		mFile = file;
+		mName = file.getName();
+		if(read) {
+			FileInfo info = new FileInfo(file);
+			mLastModified = info.mLastModified;
+			mSize = info.mSize;
+		}
+	}
+
+	/** @return the {@link File}. */
+	public File getFile() { return mFile; }
+
+	/** @return the name of the file. */
+	public String getName() { return mName; }
+
+	/** @return the time of last modification in milliseconds since the epoch. */
+	public long getLastModified() { return mLastModified; }
+
+	/** @return the size of the file in bytes. */
+	public long getSize() { return mSize; }
+
+	/**
+	 * Get a {@link Comparator} for an attribute.
+	 *
+	 * @param sortOn      the attribute. See {@link FileComparator} for allowed values.
+	 * @param direction   {@link FileComparator#SortAscending} or {@link FileComparator#SortDecending}.
+	 *
+	 * @return the {@link Comparator}.
+	 **/
+	static public Comparator<FileInfo> getComparator(int sortOn, int direction)
+	{
+		return getComparator(new int[] { sortOn }, new int[] { direction });
+	}
+
+	/**
+	 * Get a {@link Comparator} for several attributes. Files which are the same for the
+	 * first attribute are compared with the next, and so on.
+	 *
+	 * @param sortOn      the attributes. See {@link FileComparator} for allowed values.
+	 * @param direction   the direction for each attribute, {@link FileComparator#SortAscending}
+	 *                    or {@link FileComparator#SortDecending}. If shorter than sortOn the
+	 *                    last direction is used for the remaining attributes.
+	 *
+	 * @return the {@link Comparator}.
+	 **/
+	static public Comparator<FileInfo> getComparator(final int[] sortOn, final int[] direction)
+	{
+		if(sortOn.length == 0 || direction.length == 0) throw new IllegalArgumentException("No sort attribute given");
+
+		return new Comparator<FileInfo>() {
+			public int compare(FileInfo f1, FileInfo f2) {
+				int n = 0;
+				for(int i = 0; i < sortOn.length && n == 0; i++) {
+					switch(sortOn[i]) {
+						case FileComparator.FileLastModified:
+							n = Long.compare(f1.mLastModified, f2.mLastModified);
+							break;
+						case FileComparator.FileSize:
+							n = Long.compare(f1.mSize, f2.mSize);
+							break;
+						default:	// FileName
+							n = f1.mName.compareTo(f2.mName);
+							break;
+					}
+					if(direction[Math.min(i, direction.length - 1)] == FileComparator.SortDecending) n = -n;
+				}
+				return n;
+			}
+		};
+	}
+}
@@ -0,0 +1,213 @@
+package igpp.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A buffer of lines with a fixed capacity, for collecting the output of a command
+ * (see {@link AsyncProcess}). When the buffer is full it either waits for lines to be
+ * taken (blocking) or drops the oldest line (ring). A blocking buffer holds back the writer,
+ * and a command writing to it, until the reader catches up. A ring buffer keeps the last
+ * lines of output and never waits.
+ *<p>
+ * When the writer is done it closes the buffer. Readers then receive the lines
+ * remaining, followed by null.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class LineBuffer implements Consumer<String> {
+	String[]	mLine;
+	int	mHead = 0;	// Index of the oldest line
+	int	mCount = 0;
+	boolean	mBlock;
+	boolean	mClosed = false;
+	long	mDropped = 0;
+	long	mTotal = 0;
+
+	ReentrantLock	mLock = new ReentrantLock();
+	Condition	mNotEmpty = mLock.newCondition();
+	Condition	mNotFull = mLock.newCondition();
+
+	/**
+	 * Create a buffer.
+	 *
+	 * @param capacity   the number of lines held.
+	 * @param block      <code>true</code> to wait when full, <code>false</code> to drop the oldest line.
+	 **/
+	public LineBuffer(int capacity, boolean block)
+	{
+		if(capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+		mLine = new String[capacity];
+		mBlock = block;
+	}
+
+	/**
+	 * Add a line. Called by the writer. A blocking buffer waits while full.
+	 *
+	 * @param line   the line.
+	 **/
+	public void accept(String line)
+	{
+		mLock.lock();
+		try {
+			if(mBlock) {
+				while(mCount == mLine.length && ! mClosed) mNotFull.awaitUninterruptibly();
+			}
+			if(mClosed) return;	// Reader closed the buffer - discard
+			if(mCount == mLine.length) {	// Drop the oldest
+				mLine[mHead] = null;
+				mHead = (mHead + 1) % mLine.length;
+				mCount--;
+				mDropped++;
+			}
+			mLine[(mHead + mCount) % mLine.length] = line;
+			mCount++;
+			mTotal++;
+			mNotEmpty.signal();
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	/**
+	 * Take the oldest line, waiting until one is available.
+	 *
+	 * @return the line, or null if the buffer is closed and empty.
+	 *
+	 * @throws InterruptedException if interrupted while waiting.
+	 **/
+	public String take()
+		throws InterruptedException
+	{
+		mLock.lock();
+		try {
+			while(mCount == 0 && ! mClosed) mNotEmpty.await();
+			return remove();
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	/**
+	 * Take the oldest line, waiting up to a time for one to be available.
+	 *
+	 * @param timeout   the longest time to wait.
+	 * @param unit      the unit of the timeout.
+	 *
+	 * @return the line, or null if none arrived in time or the buffer is closed and empty.
+	 *
+	 * @throws InterruptedException if interrupted while waiting.
+	 **/
+	public String poll(long timeout, TimeUnit unit)
+		throws InterruptedException
+	{
+		long nanos = unit.toNanos(timeout);
+		mLock.lock();
+		try {
+			while(mCount == 0 && ! mClosed) {
+				if(nanos <= 0) return null;
+				nanos = mNotEmpty.awaitNanos(nanos);
+			}
+			return remove();
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	/**
+	 * Take all lines in the buffer without waiting.
+	 *
+	 * @return an {@link ArrayList} of the lines, oldest first.
+	 **/
+	public ArrayList<String> drain()
+	{
+		mLock.lock();
+		try {
+			ArrayList<String> list = new ArrayList<String>(mCount);
+			while(mCount > 0) list.add(remove());
+			return list;
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	/**
+	 * Get a copy of the lines in the buffer without removing them.
+	 *
+	 * @return an {@link ArrayList} of the lines, oldest first.
+	 **/
+	public ArrayList<String> getLines()
+	{
+		mLock.lock();
+		try {
+			ArrayList<String> list = new ArrayList<String>(mCount);
+			for(int i = 0; i < mCount; i++) list.add(mLine[(mHead + i) % mLine.length]);
+			return list;
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	/**
+	 * Remove the oldest line. The lock must be held.
+	 **/
+	private String remove()
+	{
+		if(mCount == 0) return null;
+
+		String line = mLine[mHead];
+		mLine[mHead] = null;
+		mHead = (mHead + 1) % mLine.length;
+		mCount--;
+		mNotFull.signal();
+
+		return line;
+	}
+
+	/**
+	 * Close the buffer. No more lines are added and waiting readers and writers are released.
+	 **/
+	public void close()
+	{
+		mLock.lock();
+		try {
+			mClosed = true;
+			mNotEmpty.signalAll();
+			mNotFull.signalAll();
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	/** @return <code>true</code> if the buffer is closed. */
+	public boolean isClosed()
+	{
+		mLock.lock();
+		try { return mClosed; } finally { mLock.unlock(); }
+	}
+
+	/** @return the number of lines in the buffer. */
+	public int size()
+	{
+		mLock.lock();
+		try { return mCount; } finally { mLock.unlock(); }
+	}
+
+	/** @return the number of lines dropped because the buffer was full. */
+	public long getDroppedCount()
+	{
+		mLock.lock();
+		try { return mDropped; } finally { mLock.unlock(); }
+	}
+
+	/** @return the number of lines added. */
+	public long getTotalCount()
+	{
+		mLock.lock();
+		try { return mTotal; } finally { mLock.unlock(); }
+	}
+}
@@ -9,6 +9,14 @@ import java.io.BufferedReader;
 import java.util.Comparator;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * Simple file and directory listing utility methods.
@@ -19,10 +27,36 @@ import java.util.ArrayList;
 public class Listing {
 	static String mVersion = "1.0.1";
 	
+	/** Lists with more files than this are sorted in parallel by {@link #getSortedList(File[], int[], int[])}. */
+	static public final int PARALLEL_SORT_SIZE = 100000;
+	
+	static private DirectoryIndex mIndex = null;
+	
 	public Listing()
 	{
 	}
 	
+	/**
+	 * Set the index used to answer {@link #getFileList(File)}, {@link #getFileList(File, String)}
+	 * and {@link #getFileListByExtension(File, String)} from memory.
+	 *
+	 * @param index	the {@link DirectoryIndex} to use, or null to read folders each time.
+	 **/
+	static public void setIndex(DirectoryIndex index)
+	{
+		mIndex = index;
+	}
+	
+	/**
+	 * Get the index used to answer listing queries.
+	 *
+	 * @return the {@link DirectoryIndex} or null if none is set.
+	 **/
+	static public DirectoryIndex getIndex()
+	{
+		return mIndex;
+	}
+	
 	public static void main(String[] args)
 	{
 		Listing me = new Listing();
@@ -130,24 +164,10 @@ public class Listing {
    	if(root == null) return null;
    	if(extension == null) return null;
    	
-   	extension = extension.toUpperCase();
+   	DirectoryIndex index = mIndex;
+   	if(index != null) return index.getFileListByExtension(root, extension);
    	
-      File [] list = root.listFiles(new FileFilter()
-        {
-          public boolean accept(File pathname) { if(pathname.isFile()) return true; else return false; }
-        }
-        );
-      
-      if(list == null) return null;
-      
-   	ArrayList<File> match  = new ArrayList<File>();
-      for(File item : list) {
-      	if(item.getName().toUpperCase().endsWith(extension)) match.add(item);	
-      }
-      
-      if(match.isEmpty()) return null;
-      
-      return match.toArray(new File[1]);
+   	return getFileList(root, NameFilter.extensions(extension));
 	}
 	
 	/**
@@ -171,24 +191,47 @@ public class Listing {
 	{
    	if(root == null) return null;
    	if(pattern == null) return null;
-   	File[] list = null;
-   	ArrayList<File> match  = new ArrayList<File>();
    	
-      list = root.listFiles(new FileFilter()
+   	DirectoryIndex index = mIndex;
+   	if(index != null) return index.getFileList(root, pattern);
+   	
+   	return getFileList(root, NameFilter.regex(pattern));
+	}
+
+	/**
+	 * Get the list of files at the location specified with {@link File} object that match a glob pattern
+	 * (i.e. "*.xml"). See {@link NameFilter#glob(String)} for the syntax.
+	 *
+	 * @return Array of {@link File} items for each file, null if no files are present.
+	 **/
+	static public File[] getFileListByGlob(File root, String glob) 
+	{
+   	if(root == null) return null;
+   	if(glob == null) return null;
+   	
+   	return getFileList(root, NameFilter.glob(glob));
+	}
+
+	/**
+	 * Get the list of files at the location specified with {@link File} object whose names pass a filter.
+	 * The name is tested before the file type, so files which do not match are not examined further.
+	 *
+	 * @return Array of {@link File} items for each file, null if no files are present.
+	 **/
+	static public File[] getFileList(File root, final NameFilter filter) 
+	{
+   	if(root == null) return null;
+   	if(filter == null) return null;
+   	
+      File[] list = root.listFiles(new FileFilter()
         {
-          public boolean accept(File pathname) { if(pathname.isFile()) return true; else return false; }
+          public boolean accept(File pathname) { return filter.accept(pathname.getName()) && pathname.isFile(); }
         }
         );
       
-      if(list == null) return null;
+      if(list == null || list.length == 0) return null;
       
-      for(File item : list) {
-      	if(item.getName().matches(pattern)) match.add(item);	
-      }
-      
-      if(match.isEmpty()) return null;
-      
-      return match.toArray(new File[1]);
+      return list;
 	}
 
 	/**
@@ -199,6 +242,9 @@ public class Listing {
 	static public File[] getFileList(File root) 
 	{
    	if(root == null) return null;
+   	
+   	DirectoryIndex index = mIndex;
+   	if(index != null) return index.getFileList(root);
    	File[] list = null;
    	
       list = root.listFiles(new FileFilter()
@@ -210,56 +256,200 @@ public class Listing {
       return list;
 	}
 	
+	/**
+	 * Pass each file in a folder, and in folders below it to a given depth, to a visitor 
+	 * as the entries are read. No array of files is created and the walk stops when
+	 * the visitor returns false. Hidden folders are skipped.
+	 * See {@link DirectoryWalker} for other options.
+	 *
+	 * @param pathName	the path to the folder.
+	 * @param depth	the number of levels to walk. 1 visits only the files in the folder.
+	 * @param visitor	the {@link DirectoryWalker.Visitor} to receive each file.
+	 *
+	 * @return true if all files were visited, false if the visitor stopped the walk.
+	 **/
+	static public boolean walk(String pathName, int depth, DirectoryWalker.Visitor visitor) 
+		throws java.io.IOException
+	{
+		DirectoryWalker walker = new DirectoryWalker();
+		walker.setMaxDepth(depth);
+		
+		return walker.walk(pathName, visitor);
+	}
+	
+	/**
+	 * Pass each file in a directory tree to a visitor, listing several folders 
+	 * at the same time. The visitor is called from several threads and must be thread safe.
+	 * Hidden folders are skipped. See {@link TreeScanner} for other options and statistics.
+	 *
+	 * @param pathName	the path to the root of the tree.
+	 * @param threads	the number of folders listed at the same time.
+	 * @param visitor	the {@link DirectoryWalker.Visitor} to receive each file.
+	 *
+	 * @return true if all files were visited, false if the visitor stopped the scan.
+	 **/
+	static public boolean scan(String pathName, int threads, DirectoryWalker.Visitor visitor) 
+		throws java.io.IOException
+	{
+		TreeScanner scanner = new TreeScanner();
+		scanner.setThreads(threads);
+		
+		return scanner.scan(pathName, visitor);
+	}
+	
 	/**
 	 * Get the most recent file placed in at the location specified with {@link File} object.
 	 *
-	 * @return Array of {@link File} items for each file, null if no files are present.
+	 * @return the {@link File} modified most recently, null if no files are present.
 	 **/
 	static public File getMostRecentFile(File root) 
 	{
-   	if(root == null) return null;
-   	File[] list = getFileList(root);
-   	if(list == null) return null;
-   		
-   	File[] sorted = getSortedList(list, FileComparator.FileLastModified, FileComparator.SortDecending);
-   	
-   	return sorted[0];
+		File[] list = getNewestFiles(root, 1);
+		if(list == null) return null;
+		
+		return list[0];
 	}
 
 	/**
 	 * Get the first file in the sorted file list at the location specified with {@link File} object.
 	 *
-	 * @return Array of {@link File} items for each file, null if no files are present.
+	 * @return the first {@link File} by name, null if no files are present.
 	 **/
 	static public File getFirstFile(File root) 
 	{
-   	if(root == null) return null;
-   	File[] list = getFileList(root);
-   	
-   	if(list == null) return null;
-   		
-   	File[] sorted = getSortedList(list, FileComparator.FileName, FileComparator.SortAscending);
-   	
-   	return sorted[0];
+		File[] list = getFirstFiles(root, 1);
+		if(list == null) return null;
+		
+		return list[0];
 	}
 
 	/**
 	 * Get the last file in the sorted file list at the location specified with {@link File} object.
 	 *
-	 * @return Array of {@link File} items for each file, null if no files are present.
+	 * @return the last {@link File} by name, null if no files are present.
 	 **/
 	static public File getLastFile(File root) 
 	{
-   	if(root == null) return null;
-   	File[] list = getFileList(root);
-   	
-   	if(list == null) return null;
-   		
-   	File[] sorted = getSortedList(list, FileComparator.FileName, FileComparator.SortDecending);
-   	
-   	if(sorted == null) return null;
-   	
-   	return sorted[0];
+		File[] list = getLastFiles(root, 1);
+		if(list == null) return null;
+		
+		return list[0];
+	}
+
+	/**
+	 * Get the files modified most recently at the location specified with {@link File} object.
+	 *
+	 * @param root	the folder.
+	 * @param count	the number of files to return.
+	 *
+	 * @return Array of up to count {@link File} items, newest first, null if no files are present.
+	 **/
+	static public File[] getNewestFiles(File root, int count) 
+	{
+		return selectFiles(root, count, FileComparator.FileLastModified, FileComparator.SortDecending);
+	}
+
+	/**
+	 * Get the files modified least recently at the location specified with {@link File} object.
+	 *
+	 * @param root	the folder.
+	 * @param count	the number of files to return.
+	 *
+	 * @return Array of up to count {@link File} items, oldest first, null if no files are present.
+	 **/
+	static public File[] getOldestFiles(File root, int count) 
+	{
+		return selectFiles(root, count, FileComparator.FileLastModified, FileComparator.SortAscending);
+	}
+
+	/**
+	 * Get the first files sorted by name at the location specified with {@link File} object.
+	 *
+	 * @param root	the folder.
+	 * @param count	the number of files to return.
+	 *
+	 * @return Array of up to count {@link File} items in ascending order, null if no files are present.
+	 **/
+	static public File[] getFirstFiles(File root, int count) 
+	{
+		return selectFiles(root, count, FileComparator.FileName, FileComparator.SortAscending);
+	}
+
+	/**
+	 * Get the last files sorted by name at the location specified with {@link File} object.
+	 *
+	 * @param root	the folder.
+	 * @param count	the number of files to return.
+	 *
+	 * @return Array of up to count {@link File} items in descending order, null if no files are present.
+	 **/
+	static public File[] getLastFiles(File root, int count) 
+	{
+		return selectFiles(root, count, FileComparator.FileName, FileComparator.SortDecending);
+	}
+
+	/**
+	 * Select the first files in a sort order at the location specified with {@link File} object.
+	 * The folder is read once, keeping only the best files seen so far, so the folder is never
+	 * held in memory. The attributes of each file are read once. When selecting by name, 
+	 * attributes are read only for files which would be selected.
+	 * {@link FileComparator} for a list of allowed values for sortOn and direction.
+	 *
+	 * @param root	the folder.
+	 * @param count	the number of files to return.
+	 * @param sortOn	the attribute to sort on.
+	 * @param direction	the direction of the sort.
+	 *
+	 * @return Array of up to count {@link File} items in sort order, null if no files are present.
+	 **/
+	static public File[] selectFiles(File root, int count, int sortOn, int direction) 
+	{
+		if(root == null) return null;
+		if(count < 1) return null;
+		
+		Comparator<FileInfo> order = FileInfo.getComparator(sortOn, direction);
+		PriorityQueue<FileInfo> heap = new PriorityQueue<FileInfo>(Math.min(count, 1024) + 1, Collections.reverseOrder(order));	// Worst at head
+		boolean byName = (sortOn == FileComparator.FileName);
+		
+		try {
+			DirectoryStream<Path> stream = Files.newDirectoryStream(root.toPath());
+			try {
+				for(Path path : stream) {
+					if(byName && heap.size() == count) {	// Skip names which can not be selected
+						int n = path.getFileName().toString().compareTo(heap.peek().getName());
+						if(direction == FileComparator.SortDecending) n = -n;
+						if(n >= 0) continue;
+					}
+					
+					BasicFileAttributes attributes;
+					try {
+						attributes = Files.readAttributes(path, BasicFileAttributes.class);
+					} catch(IOException e) {
+						continue;	// Removed or can not be read
+					}
+					if( ! attributes.isRegularFile()) continue;
+					
+					FileInfo info = new FileInfo(path, attributes);
+					if(heap.size() < count) {
+						heap.add(info);
+					} else if(order.compare(info, heap.peek()) < 0) {
+						heap.poll();
+						heap.add(info);
+					}
+				}
+			} finally {
+				stream.close();
+			}
+		} catch(Exception e) {
+			return null;
+		}
+		
+		if(heap.isEmpty()) return null;
+		
+		File[] list = new File[heap.size()];
+		for(int i = list.length - 1; i >= 0; i--) list[i] = heap.poll().getFile();
+		
+		return list;
 	}
 
 	/**
@@ -314,11 +504,44 @@ public class Listing {
 	 **/
 	static public File[] getSortedList(File[] list, int sortOn, int direction) 
 	{
-   	if(list == null) return null;
-      
-      Arrays.sort(list, new FileComparator(sortOn, direction));
-      
-      return list;
+		return getSortedList(list, new int[] { sortOn }, new int[] { direction });
+	}
+	
+	/**
+	 * Sort an array of {@link File} items on several attributes of each file,
+	 * for example by time of last modification then by name.
+	 * The name, size and time of last modification of each file are read once
+	 * before sorting, and only if a sort attribute needs them.
+	 * Lists larger than {@link #PARALLEL_SORT_SIZE} are sorted in parallel.
+	 * The sort is stable, so files which are the same for all attributes keep their order.
+	 * {@link FileComparator} for a list of allowed values for sortOn and direction.
+	 *
+	 * @param list	the files to sort. The array is sorted in place.
+	 * @param sortOn	the attributes to sort on, in order of importance.
+	 * @param direction	the direction for each attribute. If shorter than sortOn
+	 *                 the last direction is used for the remaining attributes.
+	 *
+	 * @return Array of {@link File} items for each file, null if no folders are present.
+	 **/
+	static public File[] getSortedList(File[] list, int[] sortOn, int[] direction) 
+	{
+		if(list == null) return null;
+		
+		boolean read = false;	// Read attributes only if needed
+		for(int key : sortOn) {
+			if(key != FileComparator.FileName) read = true;
+		}
+		
+		FileInfo[] info = new FileInfo[list.length];
+		for(int i = 0; i < list.length; i++) info[i] = new FileInfo(list[i], read);
+		
+		Comparator<FileInfo> order = FileInfo.getComparator(sortOn, direction);
+		if(info.length > PARALLEL_SORT_SIZE) Arrays.parallelSort(info, order);
+		else Arrays.sort(info, order);
+		
+		for(int i = 0; i < info.length; i++) list[i] = info[i].getFile();
+		
+		return list;
 	}
 	
 	/**
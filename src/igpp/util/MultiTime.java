@@ -2,6 +2,8 @@ package igpp.util;
 
 import java.util.*;
 import java.text.*;
+import java.io.BufferedReader;
+import java.io.IOException;
 
 /**
  * MultiTime is a class that contains a methods for parsing, comparing and
@@ -170,12 +172,10 @@ public class MultiTime implements Comparable<MultiTime> {
 					pattern = "yyyy MM dd HH:mm:ss.SSS";
 				}
 				buffer	+=hour + ":" + minute + ":"	+ seconds;
-				parser = new SimpleDateFormat(pattern);
-				parser.setTimeZone(mTimeZone);
+				parser = DateFormatCache.getFormat(pattern, mTimeZone);
 				mDate.setTime(parser.parse(buffer));
 			} else {
-				parser = new SimpleDateFormat(pattern);	
-				parser.setTimeZone(mTimeZone);
+				parser = DateFormatCache.getFormat(pattern, mTimeZone);
 				mDate.setTime(parser.parse(buffer));
 				n = mDate.get(Calendar.YEAR);
 				if(n >= 20 && n < 100) mDate.add(Calendar.YEAR, 1900);
@@ -188,6 +188,57 @@ public class MultiTime implements Comparable<MultiTime> {
 		return true;
 	}
 	
+    /** 
+     * Converts an array of time strings which all have the same pattern.
+     * The pattern is resolved once and the parser is reused for each value.
+     * See {@link TimeColumn} for access to the values and which values could be parsed.
+	 * 
+	 * @param pattern	the name of a standard format or the pattern specification.
+	 * @param values	the time strings to parse.
+	 *
+	 * @return			a {@link TimeColumn} with the count of nanoseconds since the epoch for each value.
+	 *
+     * @since           1.0
+     */
+	static public TimeColumn convertColumn(String pattern, CharSequence[] values)
+	{
+		return TimeColumn.convert(pattern, values);
+	}
+	
+    /** 
+     * Converts a list of time strings which all have the same pattern.
+     * The pattern is resolved once and the parser is reused for each value.
+	 * 
+	 * @param pattern	the name of a standard format or the pattern specification.
+	 * @param values	the time strings to parse.
+	 *
+	 * @return			a {@link TimeColumn} with the count of nanoseconds since the epoch for each value.
+	 *
+     * @since           1.0
+     */
+	static public TimeColumn convertColumn(String pattern, List<? extends CharSequence> values)
+	{
+		return TimeColumn.convert(pattern, values);
+	}
+	
+    /** 
+     * Converts each line read from a reader as a time string with the given pattern.
+	 * 
+	 * @param pattern	the name of a standard format or the pattern specification.
+	 * @param reader	the reader to read lines from.
+	 *
+	 * @return			a {@link TimeColumn} with the count of nanoseconds since the epoch for each value.
+	 *
+	 * @throws IOException	if an error occurs while reading.
+	 *
+     * @since           1.0
+     */
+	static public TimeColumn convertColumn(String pattern, BufferedReader reader)
+		throws IOException
+	{
+		return TimeColumn.convert(pattern, reader);
+	}
+	
     /** 
      * Formats the time in the requested format and returns the string.
 	 * 
@@ -234,31 +285,26 @@ public class MultiTime implements Comparable<MultiTime> {
 			buffer += temp.substring(0, n);
 		} else if((n = pattern.indexOf('T')) != -1) {	// Special case - PDS style time
 			if(pattern.compareTo("T") == 0) {	// Fule time format
-				parser = new SimpleDateFormat("yyyy-MM-dd");
-				parser.setTimeZone(mTimeZone);
+				parser = DateFormatCache.getFormat("yyyy-MM-dd", mTimeZone);
 				buffer = parser.format(mDate.getTime()) + "T";
-				parser = new SimpleDateFormat("HH:mm:ss.SSS");
-				parser.setTimeZone(mTimeZone);
+				parser = DateFormatCache.getFormat("HH:mm:ss.SSS", mTimeZone);
 				buffer += parser.format(mDate.getTime());
 			} else {	// Treat as two part pattern split by "T"
 				buffer = "";
 				temp = pattern.substring(0, n);
 				if(temp.length() > 0) {
-					parser = new SimpleDateFormat(pattern.substring(0, n));
-					parser.setTimeZone(mTimeZone);
+					parser = DateFormatCache.getFormat(pattern.substring(0, n), mTimeZone);
 					buffer += parser.format(mDate.getTime());
 				}
 				buffer += "T";
 				temp = pattern.substring(n+1);
 				if(temp.length() > 0) {
-					parser = new SimpleDateFormat(temp);
-					parser.setTimeZone(mTimeZone);
+					parser = DateFormatCache.getFormat(temp, mTimeZone);
 					buffer += parser.format(mDate.getTime());
 				}
 			}
 		} else {
-			parser = new SimpleDateFormat(pattern);
-			parser.setTimeZone(mTimeZone);
+			parser = DateFormatCache.getFormat(pattern, mTimeZone);
 			buffer = parser.format(mDate.getTime());
 		}
 		return buffer;
@@ -400,4 +446,4 @@ public class MultiTime implements Comparable<MultiTime> {
 		return (mDate.getTimeInMillis() - other.mDate.getTimeInMillis());
 	}
 	
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,241 @@
+package igpp.util;
+
+import java.io.File;
+import java.io.FileFilter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled test of file names. A filter can match a regular expression, a glob
+ * pattern (such as "*.xml" or "data_{a,b}_??.txt") or a set of extensions. Filters are
+ * cached by their pattern, so asking for the same pattern again returns the compiled
+ * filter rather than compiling the pattern again.
+ *<p>
+ * Extension sets compare the end of each name ignoring case without creating any objects.
+ * Regular expressions and globs reuse one {@link Matcher} per thread.
+ * A filter may be used by several threads at once.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public abstract class NameFilter implements FileFilter {
+	static final int CACHE_SIZE = 1024;
+
+	static private ConcurrentHashMap<String, NameFilter> mCache = new ConcurrentHashMap<String, NameFilter>();
+
+	/**
+	 * Determine if a name passes the filter.
+	 *
+	 * @param name   the name of the file.
+	 *
+	 * @return <code>true</code> if the name passes the filter.
+	 **/
+	public abstract boolean accept(CharSequence name);
+
+	/**
+	 * Determine if the name of a file passes the filter.
+	 *
+	 * @param file   the file.
+	 *
+	 * @return <code>true</code> if the name passes the filter.
+	 **/
+	public boolean accept(File file)
+	{
+		return accept(file.getName());
+	}
+
+	/**
+	 * Get a filter for a regular expression. The whole name must match,
+	 * as with {@link String#matches(String)}.
+	 *
+	 * @param regex   the regular expression.
+	 *
+	 * @return the compiled filter.
+	 *
+	 * @throws java.util.regex.PatternSyntaxException if the expression is not valid.
+	 **/
+	static public NameFilter regex(String regex)
+	{
+		NameFilter filter = mCache.get("r:" + regex);
+		if(filter == null) filter = cache("r:" + regex, new PatternFilter(Pattern.compile(regex)));
+
+		return filter;
+	}
+
+	/**
+	 * Get a filter for a glob pattern. In a glob, "*" matches any characters, "?" matches
+	 * one character, "[...]" matches one of a set of characters, "{a,b}" matches any of the
+	 * listed choices and "\" makes the next character literal. The comparison is case sensitive.
+	 *
+	 * @param glob   the glob pattern.
+	 *
+	 * @return the compiled filter.
+	 *
+	 * @throws java.util.regex.PatternSyntaxException if the pattern is not valid.
+	 **/
+	static public NameFilter glob(String glob)
+	{
+		NameFilter filter = mCache.get("g:" + glob);
+		if(filter == null) filter = cache("g:" + glob, new PatternFilter(Pattern.compile(toRegex(glob))));
+
+		return filter;
+	}
+
+	/**
+	 * Get a filter for a set of extensions. A name passes if it ends with any of the extensions.
+	 * The comparison is case insensitive.
+	 *
+	 * @param extension   the extensions (i.e. ".xml", ".XSD").
+	 *
+	 * @return the compiled filter.
+	 **/
+	static public NameFilter extensions(String... extension)
+	{
+		StringBuilder key = new StringBuilder("e:");
+		for(String item : extension) key.append(item).append('\u0000');
+
+		NameFilter filter = mCache.get(key.toString());
+		if(filter == null) filter = cache(key.toString(), new SuffixFilter(extension.clone()));
+
+		return filter;
+	}
+
+	/**
+	 * Add a filter to the cache. The cache is emptied when full.
+	 **/
+	static private NameFilter cache(String key, NameFilter filter)
+	{
+		if(mCache.size() >= CACHE_SIZE) mCache.clear();
+		NameFilter found = mCache.putIfAbsent(key, filter);
+
+		return (found == null) ? filter : found;
+	}
+
+	/**
+	 * Convert a glob pattern to a regular expression.
+	 **/
+	static String toRegex(String glob)
+	{
+		StringBuilder buffer = new StringBuilder(glob.length() + 16);
+		boolean inGroup = false;
+		boolean inClass = false;
+		char c;
+
+		for(int i = 0; i < glob.length(); i++) {
+			c = glob.charAt(i);
+			if(inClass) {	// Copy character classes as they are
+				if(c == ']') inClass = false;
+				if(c == '\\') { buffer.append("\\\\"); continue; }
+				buffer.append(c);
+				continue;
+			}
+			switch(c) {
+				case '*': buffer.append(".*"); break;
+				case '?': buffer.append('.'); break;
+				case '[':
+					inClass = true;
+					buffer.append('[');
+					if(i + 1 < glob.length() && glob.charAt(i + 1) == '!') { buffer.append('^'); i++; }
+					break;
+				case '{': inGroup = true; buffer.append("(?:"); break;
+				case '}': if(inGroup) { inGroup = false; buffer.append(')'); } else buffer.append("\\}"); break;
+				case ',': if(inGroup) buffer.append('|'); else buffer.append(','); break;
+				case '\\':
+					if(i + 1 < glob.length()) { i++; buffer.append(Pattern.quote(String.valueOf(glob.charAt(i)))); }
+					else buffer.append("\\\\");
+					break;
+				default:
+					if("().+^$|".indexOf(c) != -1) buffer.append('\\');
+					buffer.append(c);
+					break;
+			}
+		}
+
+		return buffer.toString();
+	}
+
+	/**
+	 * Get the number of compiled filters in the cache.
+	 *
+	 * @return the number of filters.
+	 **/
+	static public int getCacheSize()
+	{
+		return mCache.size();
+	}
+
+	/**
+	 * Match names with a compiled {@link Pattern}.
+	 **/
+	static class PatternFilter extends NameFilter {
+		Pattern	mPattern;
+		ThreadLocal<Matcher>	mMatcher = new ThreadLocal<Matcher>();
+
+		PatternFilter(Pattern pattern)
+		{
+			mPattern = pattern;
+		}
+
+		public boolean accept(CharSequence name)
+		{
+			Matcher matcher = mMatcher.get();
+			if(matcher == null) {
+				matcher = mPattern.matcher(name);
+				mMatcher.set(matcher);
+			} else {
+				matcher.reset(name);
+			}
+			boolean match = matcher.matches();
+			matcher.reset("");	// Do not hold the name
+
+			return match;
+		}
+
+		public String toString() { return mPattern.pattern(); }
+	}
+
+	/**
+	 * Match the end of names ignoring case.
+	 **/
+	static class SuffixFilter extends NameFilter {
+		String[]	mSuffix;
+
+		SuffixFilter(String[] suffix)
+		{
+			mSuffix = suffix;
+		}
+
+		public boolean accept(CharSequence name)
+		{
+			int length = name.length();
+			for(String suffix : mSuffix) {
+				int n = suffix.length();
+				if(n > length) continue;
+				if(regionMatches(name, length - n, suffix)) return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Compare part of a name to a suffix ignoring case.
+		 **/
+		static private boolean regionMatches(CharSequence name, int offset, String suffix)
+		{
+			char a, b;
+			for(int i = 0; i < suffix.length(); i++) {
+				a = name.charAt(offset + i);
+				b = suffix.charAt(i);
+				if(a == b) continue;
+				a = Character.toUpperCase(a);
+				b = Character.toUpperCase(b);
+				if(a == b) continue;
+				if(Character.toLowerCase(a) != Character.toLowerCase(b)) return false;
+			}
+			return true;
+		}
+
+		public String toString() { return java.util.Arrays.toString(mSuffix); }
+	}
+}
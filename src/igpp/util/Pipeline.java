@@ -0,0 +1,504 @@
+package igpp.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Run a chain of commands with the output of each command connected to the input of the next,
+ * as with "|" in a shell. Data passes from one command to the next without being collected,
+ * so large outputs do not fill memory. Only the output of the last command is read, line
+ * by line, by a consumer, or it can be written directly to a file.
+ *<p>
+ * Where the Java runtime supports it (Java 9 and later) the commands are joined by
+ * pipes of the operating system and the data does not pass through Java at all.
+ * Otherwise the data is copied from one command to the next through a small buffer.
+ * The input of the first command is empty unless read from a file.
+ *<p>
+ * The status is that of the last command, unless "pipe fail" is set, and the status
+ * of each command is available once finished. The tasks which read the streams
+ * run on the {@link AsyncProcess} executor. See {@link ProcessGraph} to run several pipelines.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class Pipeline {
+	/** Size of the buffer used to copy data between commands when pipes are not supported. */
+	static final int COPY_SIZE = 65536;
+
+	/** Time a command may run after the command reading its output has exited (milliseconds). */
+	static final long PIPE_WAIT = 1000;
+
+	static private Method mStartPipeline = findStartPipeline();
+
+	ArrayList<String>	mCommand = new ArrayList<String>();
+	String	mHome = null;
+	File	mInputFile = null;
+	File	mOutputFile = null;
+	boolean	mAppend = false;
+	Consumer<String>	mOutput = null;
+	Consumer<String>	mError = null;
+	boolean	mPipeFail = false;
+	boolean	mNative = true;
+	long	mTimeout = 0;
+
+	volatile java.lang.Process[]	mProcess = null;
+	CompletableFuture<Integer>	mResult = null;
+	ScheduledFuture<?>	mTimeoutTask = null;
+	int[]	mExitValue = null;
+	volatile boolean	mKilled = false;
+	volatile boolean	mTimedOut = false;
+	volatile RuntimeException	mFailure = null;	// Thrown by a consumer
+
+	/**
+	 * Create a pipeline.
+	 *
+	 * @param command   the command lines to run, in order. The command lines are parsed as in {@link Process#run(String, String)}.
+	 **/
+	public Pipeline(String... command)
+	{
+		for(String item : command) mCommand.add(item);
+	}
+
+	/**
+	 * Add a command to the end of the pipeline.
+	 *
+	 * @param command   the command line.
+	 **/
+	public void add(String command)
+	{
+		mCommand.add(command);
+	}
+
+	/** @return the number of commands in the pipeline. */
+	public int size() { return mCommand.size(); }
+
+	/**
+	 * Set the path to the home directory in which to run the commands.
+	 *
+	 * @param home   the path. If null the current directory is used.
+	 **/
+	public void setHome(String home) { mHome = home; }
+
+	/**
+	 * Set a file to read as the input of the first command.
+	 *
+	 * @param file   the file. If null the input is empty.
+	 **/
+	public void setInput(File file) { mInputFile = file; }
+
+	/**
+	 * Write the output of the last command to a file. The file is written directly by the command.
+	 *
+	 * @param file     the file.
+	 * @param append   <code>true</code> to add to the end of the file, <code>false</code> to replace it.
+	 **/
+	public void setOutput(File file, boolean append)
+	{
+		mOutputFile = file;
+		mAppend = append;
+		mOutput = null;
+	}
+
+	/**
+	 * Set the consumer for lines written by the last command. If null the lines are discarded.
+	 * A blocking {@link LineBuffer} holds back the pipeline until lines are taken.
+	 *
+	 * @param output   the consumer.
+	 **/
+	public void setOutput(Consumer<String> output)
+	{
+		mOutput = output;
+		mOutputFile = null;
+	}
+
+	/**
+	 * Set the consumer for lines written to standard error by all commands. If null the lines are discarded.
+	 * A {@link LineBuffer} is closed once standard error of every command has ended.
+	 *
+	 * @param error   the consumer. It may be called from several threads at once.
+	 **/
+	public void setError(Consumer<String> error) { mError = error; }
+
+	/**
+	 * Set whether any failing command fails the pipeline. If set, the status is that of the last command
+	 * to end with a status other than zero. Note that a command may fail when a later command exits
+	 * before reading all of its output. The default is <code>false</code>, the status of the last command.
+	 *
+	 * @param pipeFail   <code>true</code> to report the failure of any command.
+	 **/
+	public void setPipeFail(boolean pipeFail) { mPipeFail = pipeFail; }
+
+	/**
+	 * Set whether to join commands with pipes of the operating system when supported.
+	 * The default is <code>true</code>.
+	 *
+	 * @param value   <code>false</code> to always copy data between commands.
+	 **/
+	public void setNative(boolean value) { mNative = value; }
+
+	/**
+	 * Set the longest time the pipeline may run. The default is no limit.
+	 *
+	 * @param timeout   the time in milliseconds. Zero for no limit.
+	 **/
+	public void setTimeout(long timeout)
+	{
+		if(timeout < 0) throw new IllegalArgumentException("Timeout must not be negative");
+		mTimeout = timeout;
+	}
+
+	/**
+	 * Determine if the runtime can join commands with pipes of the operating system.
+	 *
+	 * @return <code>true</code> if supported.
+	 **/
+	static public boolean hasNativePipes()
+	{
+		return mStartPipeline != null;
+	}
+
+	/**
+	 * Find ProcessBuilder.startPipeline(), added in Java 9.
+	 **/
+	static private Method findStartPipeline()
+	{
+		try {
+			return ProcessBuilder.class.getMethod("startPipeline", List.class);
+		} catch(Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Start the pipeline. The future completes when all commands have exited and
+	 * all output has been read. It completes exceptionally with an {@link IOException} if
+	 * a command could not be started or a {@link TimeoutException}
+	 * if the timeout passed. Cancelling the future kills the pipeline.
+	 *
+	 * @return the future for the status.
+	 **/
+	public synchronized CompletableFuture<Integer> start()
+	{
+		if(mResult != null) throw new IllegalStateException("Already started");
+		if(mCommand.isEmpty()) throw new IllegalStateException("No commands");
+
+		mResult = new CompletableFuture<Integer>() {
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				boolean cancelled = super.cancel(mayInterruptIfRunning);
+				kill();
+				return cancelled;
+			}
+		};
+
+		File homeDir = null;
+		if(mHome != null) homeDir = new File(mHome);
+
+		int n = mCommand.size();
+		ArrayList<ProcessBuilder> builder = new ArrayList<ProcessBuilder>(n);
+		for(String command : mCommand) {
+			builder.add(new ProcessBuilder(Process.toArgs(command)).directory(homeDir));
+		}
+		if(mInputFile != null) builder.get(0).redirectInput(mInputFile);
+		if(mOutputFile != null) {
+			builder.get(n - 1).redirectOutput(mAppend ? ProcessBuilder.Redirect.appendTo(mOutputFile) : ProcessBuilder.Redirect.to(mOutputFile));
+		}
+
+		boolean joined = mNative && mStartPipeline != null && n > 1;
+		try {
+			mProcess = joined ? startPipeline(builder) : startEach(builder);
+			if(mInputFile == null) mProcess[0].getOutputStream().close();
+		} catch(Exception e) {
+			kill();
+			mResult.completeExceptionally(e);
+			return mResult;
+		}
+
+		java.lang.Process[] process = mProcess;
+		ExecutorService pool = AsyncProcess.getExecutor();
+
+		int tasks = n;	// Standard error of each
+		if(mOutputFile == null) tasks++;
+		if( ! joined) tasks += n - 1;
+		final CountDownLatch done = new CountDownLatch(tasks);
+
+		// A consumer is closed when the last stream passed to it ends
+		boolean shared = (mOutputFile == null && mOutput == mError);
+		AtomicInteger errorOpen = new AtomicInteger(shared ? n + 1 : n);
+		AtomicInteger outputOpen = shared ? errorOpen : new AtomicInteger(1);
+
+		for(int i = 0; i < n; i++) pool.execute(new LinePump(process[i].getErrorStream(), mError, errorOpen, done));
+		if(mOutputFile == null) pool.execute(new LinePump(process[n - 1].getInputStream(), mOutput, outputOpen, done));
+		if( ! joined) {
+			for(int i = 0; i < n - 1; i++) pool.execute(new CopyPump(process[i], process[i + 1], done));
+		}
+
+		if(mTimeout > 0) {
+			mTimeoutTask = AsyncProcess.schedule(new Runnable() {
+				public void run() {
+					if(mResult.isDone()) return;
+					mTimedOut = true;
+					kill();
+				}
+			}, mTimeout);
+		}
+
+		final boolean broken = joined;
+		pool.execute(new Runnable() {
+			public void run() {
+				finish(done, broken);
+			}
+		});
+
+		return mResult;
+	}
+
+	/**
+	 * Start the commands joined by pipes of the operating system.
+	 **/
+	@SuppressWarnings("unchecked")
+	static private java.lang.Process[] startPipeline(List<ProcessBuilder> builder)
+		throws IOException
+	{
+		try {
+			List<java.lang.Process> list = (List<java.lang.Process>) mStartPipeline.invoke(null, builder);
+			return list.toArray(new java.lang.Process[list.size()]);
+		} catch(InvocationTargetException e) {
+			if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} catch(IllegalAccessException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Start each command on its own. If one fails to start, those already started are stopped.
+	 **/
+	static private java.lang.Process[] startEach(List<ProcessBuilder> builder)
+		throws IOException
+	{
+		java.lang.Process[] process = new java.lang.Process[builder.size()];
+		try {
+			for(int i = 0; i < process.length; i++) process[i] = builder.get(i).start();
+		} catch(IOException e) {
+			for(java.lang.Process item : process) {
+				if(item != null) item.destroyForcibly();
+			}
+			throw e;
+		}
+		return process;
+	}
+
+	/**
+	 * Wait for the commands and the output, then complete the future.
+	 * The Java runtime may hold open the pipes between commands, so a command whose
+	 * output is no longer read would wait forever rather than fail to write as in a shell.
+	 * Such a command is stopped once the commands after it have exited.
+	 **/
+	private void finish(CountDownLatch done, boolean joined)
+	{
+		java.lang.Process[] process = mProcess;
+		try {
+			int[] exitValue = new int[process.length];
+			for(int i = process.length - 1; i >= 0; i--) {
+				if(joined && i < process.length - 1 && ! process[i].waitFor(PIPE_WAIT, TimeUnit.MILLISECONDS)) process[i].destroy();
+				exitValue[i] = process[i].waitFor();
+			}
+			if(mTimeoutTask != null) mTimeoutTask.cancel(false);
+
+			// A child of a killed command may still hold the streams open
+			if(mKilled && ! done.await(AsyncProcess.KILL_WAIT, TimeUnit.MILLISECONDS)) {
+				closeBuffers();
+				for(java.lang.Process item : process) {
+					try {
+						item.getInputStream().close();
+						item.getErrorStream().close();
+					} catch(IOException e) {
+						// Ignore
+					}
+				}
+			}
+			done.await();
+
+			synchronized(this) { mExitValue = exitValue; }
+
+			int status = exitValue[exitValue.length - 1];
+			if(mPipeFail) {
+				for(int value : exitValue) { if(value != 0) status = value; }
+			}
+
+			if(mTimedOut) mResult.completeExceptionally(new TimeoutException("Timed out after " + mTimeout + " ms"));
+			else if(mFailure != null) mResult.completeExceptionally(mFailure);
+			else mResult.complete(status);
+		} catch(Exception e) {
+			mResult.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Stop all commands. Each is asked to stop, then forced to stop if still
+	 * running after a few seconds. Consumers which are {@link LineBuffer}s are closed
+	 * so the pipeline is not held waiting for lines to be read.
+	 **/
+	public void kill()
+	{
+		final java.lang.Process[] process = mProcess;
+		if(process == null) return;
+
+		mKilled = true;
+		closeBuffers();
+
+		for(java.lang.Process item : process) {
+			if(item != null) item.destroy();
+		}
+		AsyncProcess.schedule(new Runnable() {
+			public void run() {
+				for(java.lang.Process item : process) {
+					if(item != null && item.isAlive()) item.destroyForcibly();
+				}
+			}
+		}, AsyncProcess.KILL_WAIT);
+	}
+
+	/**
+	 * Close the consumers which are {@link LineBuffer}s, so readers blocked on a full buffer
+	 * are released and lines still to come are discarded.
+	 **/
+	private void closeBuffers()
+	{
+		if(mOutput instanceof LineBuffer) ((LineBuffer) mOutput).close();
+		if(mError instanceof LineBuffer) ((LineBuffer) mError).close();
+	}
+
+	/**
+	 * Get the status of each command once the pipeline has finished.
+	 *
+	 * @return the status of each command in order, or null if not finished.
+	 **/
+	public synchronized int[] getExitValues()
+	{
+		return (mExitValue == null) ? null : mExitValue.clone();
+	}
+
+	/** @return the future for the status, or null if not started. */
+	public synchronized CompletableFuture<Integer> getResult() { return mResult; }
+
+	/** @return <code>true</code> if the pipeline was killed, including by a timeout. */
+	public boolean isKilled() { return mKilled; }
+
+	/** @return <code>true</code> if the pipeline was killed because the timeout passed. */
+	public boolean isTimedOut() { return mTimedOut; }
+
+	public String toString()
+	{
+		StringBuilder buffer = new StringBuilder();
+		for(String command : mCommand) {
+			if(buffer.length() > 0) buffer.append(" | ");
+			buffer.append(command);
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Read lines from a stream and pass each to a consumer. If the consumer fails the
+	 * rest of the stream is read and discarded, so the command is not held waiting,
+	 * and the pipeline fails with the error.
+	 **/
+	class LinePump implements Runnable {
+		InputStream	mStream;
+		Consumer<String>	mConsumer;
+		AtomicInteger	mOpen;	// Streams still passing lines to the consumer
+		CountDownLatch	mDone;
+
+		LinePump(InputStream stream, Consumer<String> consumer, AtomicInteger open, CountDownLatch done)
+		{
+			mStream = stream;
+			mConsumer = consumer;
+			mOpen = open;
+			mDone = done;
+		}
+
+		public void run()
+		{
+			Consumer<String> consumer = mConsumer;
+			try {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(mStream));
+				String line;
+				while((line = reader.readLine()) != null) {
+					if(consumer == null) continue;
+					try {
+						consumer.accept(line);
+					} catch(RuntimeException e) {
+						if(mFailure == null) mFailure = e;
+						consumer = null;
+					}
+				}
+				reader.close();
+			} catch(IOException e) {
+				// Stream closed when the command was killed
+			} finally {
+				if(mOpen.decrementAndGet() == 0 && mConsumer instanceof LineBuffer) ((LineBuffer) mConsumer).close();
+				mDone.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Copy the output of one command to the input of the next. If the next command
+	 * stops reading, the first is stopped, as a shell does.
+	 **/
+	static class CopyPump implements Runnable {
+		java.lang.Process	mFrom;
+		java.lang.Process	mTo;
+		CountDownLatch	mDone;
+
+		CopyPump(java.lang.Process from, java.lang.Process to, CountDownLatch done)
+		{
+			mFrom = from;
+			mTo = to;
+			mDone = done;
+		}
+
+		public void run()
+		{
+			InputStream input = mFrom.getInputStream();
+			OutputStream output = mTo.getOutputStream();
+			byte[] buffer = new byte[COPY_SIZE];
+			int n;
+			try {
+				while((n = input.read(buffer)) != -1) {
+					try {
+						output.write(buffer, 0, n);
+						output.flush();
+					} catch(IOException e) {	// Next command has stopped reading
+						mFrom.destroy();
+						break;
+					}
+				}
+			} catch(IOException e) {
+				// Stream closed when the command was killed
+			} finally {
+				try { output.close(); } catch(IOException e) { /* Ignore */ }
+				try { input.close(); } catch(IOException e) { /* Ignore */ }
+				mDone.countDown();
+			}
+		}
+	}
+}
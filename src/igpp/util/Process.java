@@ -1,20 +1,35 @@
 package igpp.util;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import java.io.File;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.InputStreamReader;
-import java.io.BufferedReader;
+import java.io.IOException;
 
 /**
  * Run a command line and collect the output in String buffers.
  * Class is threaded so that multiple instances can be executed.
+ * To run a command without waiting, or to handle output as it arrives, use {@link AsyncProcess}.
  *
  * @author      Todd King
  * @since       1.0
  */
 public class Process {
+	/** Longest command line kept in the cache of split arguments. */
+	static public final int MAX_CACHE_LENGTH = 8192;
+	
+	/** Largest argument buffer kept for a thread. */
+	static final int MAX_TOKEN_BUFFER = 65536;
+	
+	static private int mArgCacheSize = 256;
+	static private ConcurrentHashMap<String, String[]> mArgCache = new ConcurrentHashMap<String, String[]>();
+	static private ThreadLocal<StringBuilder> mToken = new ThreadLocal<StringBuilder>() {
+		protected StringBuilder initialValue() { return new StringBuilder(256); }
+	};
+	
 	ArrayList<String>	mOutput = new ArrayList<String>();
 	
 	/**
@@ -49,80 +64,102 @@ public class Process {
 	 **/
 	public int run(String command, String home)
 	{
-		Runtime	runtime;
-		String	buffer;
-		String	message;
-		boolean dontParseArg;
-		String	hold;
-		java.lang.Process		process;
-		ArrayList<String>	argList;
-		InputStream	input;
-		InputStream	error;
-		OutputStream	outputStream;
-		BufferedReader	inputReader;
-		BufferedReader	errorReader;
-		ThreadedReader	errorThread;
-		ThreadedReader	inputThread;
 		int		exitValue = -1;	// Failed to run
-		File	homeDir = null;
 		
-		if(home != null) homeDir = new File(home);
+		final ArrayList<String> output = mOutput;
+		Consumer<String> collect = new Consumer<String>() {
+			public void accept(String line) { synchronized(output) { output.add(line); } }
+		};
 		
-		buffer = command;
+		AsyncProcess process = new AsyncProcess(command, home);
+		process.setOutput(collect);
+		process.setError(collect);
 		try {
-			// Prepare a runtime environment
-			runtime = Runtime.getRuntime();
-
-			// Determine how we should run application
-			dontParseArg = false;
-			hold = System.getProperty("os.name");
-			if(hold.length() >= 6) { dontParseArg = (hold.substring(0, 6).compareToIgnoreCase("WINDOW") == 0); }
-			
-			// Replace variables then parse
-			if(dontParseArg) {	// Let OS parse it
-				process = runtime.exec(buffer, null, homeDir);
-			} else {
-				buffer = buffer.replaceAll("\\\\n", "\\\\\\\\n"); // Preserve escapes
-				buffer = buffer.replaceAll("\\\\r", "\\\\\\\\r"); // Preserve escapes
-				argList = argSplit(buffer, true);
-				String[] argArray = new String[argList.size()];
-				argArray = (String[]) argList.toArray(argArray);
-				process = runtime.exec(argArray, null, homeDir);
-			}
-			
-			// Collect output from command
-			outputStream = process.getOutputStream();
-			outputStream.close();
-			
-			input = process.getInputStream();
-			inputReader = new BufferedReader(new InputStreamReader(input));
-			inputThread = new ThreadedReader(inputReader, mOutput);
-			
-			error = process.getErrorStream();
-			errorReader = new BufferedReader(new InputStreamReader(error));
-			errorThread = new ThreadedReader(errorReader, mOutput);
-			
-			//start the threads
-			inputThread.start();
-			errorThread.start();
-			
-			process.waitFor();	// Wait to completion
-			
-			//read anything still in buffers.
-			//join() waits for the threads to die.
-			inputThread.join();
-			errorThread.join();
-			
-			exitValue = process.exitValue();
+			exitValue = process.start().get();
 		} catch(Exception e) {
-			buffer = "Unable to run: " + command;
-			mOutput.add(buffer);
-			mOutput.add(e.getMessage());
+			Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+			synchronized(mOutput) {
+				mOutput.add("Unable to run: " + command);
+				mOutput.add(cause.getMessage());
+			}
 		}
 		
 		return exitValue;
 	}
 	
+	/**
+	 * Start a command line with a specified path as the home directory.
+	 * The command line is split into arguments with {@link #toArgs(String)}.
+	 * The caller must read the output and error streams of the process.
+	 *
+	 * @param command the command line to run.
+	 * @param homeDir the home directory in which to run the command. If null the current directory is used.
+	 *
+	 * @return the started {@link java.lang.Process}.
+	 *
+	 * @throws IOException if the command could not be started.
+	 **/
+	static public java.lang.Process exec(String command, File homeDir)
+		throws IOException
+	{
+		return Runtime.getRuntime().exec(toArgs(command), null, homeDir);
+	}
+	
+	/**
+	 * Split a command line into arguments.
+	 * On Windows the command line is split on whitespace, as the operating system
+	 * parses the arguments, otherwise it is split with {@link #argSplit(String, boolean)}.
+	 *
+	 * @param command the command line.
+	 *
+	 * @return the arguments.
+	 **/
+	static public String[] toArgs(String command)
+	{
+		boolean dontParseArg;
+		String	hold;
+		String[]	argArray;
+		
+		argArray = mArgCache.get(command);
+		if(argArray != null) return argArray.clone();
+		
+		// Determine how we should run application
+		dontParseArg = false;
+		hold = System.getProperty("os.name");
+		if(hold.length() >= 6) { dontParseArg = (hold.substring(0, 6).compareToIgnoreCase("WINDOW") == 0); }
+		
+		if(dontParseArg) {	// Let OS parse it
+			StringTokenizer tokens = new StringTokenizer(command);
+			argArray = new String[tokens.countTokens()];
+			for(int i = 0; tokens.hasMoreTokens(); i++) argArray[i] = tokens.nextToken();
+		} else {	// Preserve "\n" and "\r" escapes
+			ArrayList<String> argList = new ArrayList<String>();
+			argSplit(command, true, true, argList);
+			argArray = argList.toArray(new String[argList.size()]);
+		}
+		
+		if(mArgCacheSize > 0 && command.length() <= MAX_CACHE_LENGTH) {
+			if(mArgCache.size() >= mArgCacheSize) mArgCache.clear();
+			mArgCache.put(command, argArray.clone());
+		}
+		
+		return argArray;
+	}
+	
+	/**
+	 * Set the number of command lines for which the split arguments are kept,
+	 * so a command line run again is not split again. Command lines longer than
+	 * {@value #MAX_CACHE_LENGTH} characters are not kept. The default is 256.
+	 *
+	 * @param size the number of command lines. Zero to keep none.
+	 **/
+	static public void setArgCacheSize(int size)
+	{
+		if(size < 0) throw new IllegalArgumentException("Cache size must not be negative");
+		mArgCacheSize = size;
+		mArgCache.clear();
+	}
+	
 	/**
 	 * Retrieve the output from the last run.
 	 *
@@ -167,48 +204,68 @@ public class Process {
      */
 	static public ArrayList<String> argSplit(String buffer, boolean onlyWhitespace) {
 		ArrayList<String>	arg = new ArrayList<String>();
+		
+		argSplit(buffer, onlyWhitespace, false, arg);
+		
+		return arg;
+	}
+	
+	/**
+	 * Split a string into arguments and add each to a list. The rules are those of
+	 * {@link #argSplit(String, boolean)}. The string is read once and each argument
+	 * is built in a buffer kept for the thread.
+	 *
+	 * @param buffer	the string to parse.
+	 * @param onlyWhitespace	if <code>true</code> split the string using only whitespace as a delimiter.
+	 *					If <code>false</code> "!" and "=" are also individual arguments.
+	 * @param keepLineEscapes	if <code>true</code> the escapes "\n" and "\r" are kept as written.
+	 * @param arg	the list to add the arguments to.
+	 **/
+	static public void argSplit(CharSequence buffer, boolean onlyWhitespace, boolean keepLineEscapes, List<String> arg) {
+		StringBuilder	temp = mToken.get();
 		int			n;
 		char		c;
-		String		temp = "";
 		boolean		inQuote = false;
 		
+		temp.setLength(0);
 		n = buffer.length();
 		for(int i = 0; i < n; i++) {
 			c = buffer.charAt(i);
 			if(c == '\\') { // Convert escaped characters
-			  i++; 
-			  if(i < n) {temp += buffer.charAt(i);} 
-		    } else {
-				if(c == '"') { if(inQuote) inQuote = false; else inQuote = true; continue; }
-				if(inQuote) {
-					temp += c;
-				} else {
-					if(onlyWhitespace) {
-						if(Character.isWhitespace(c)) {	// Argument seperator
-							if(temp.length() > 0) { arg.add(temp); temp = ""; }
-						} else {
-							temp += c;
-						}
-					} else {	// Use all tokens 
-						if(Character.isWhitespace(c)) {	// Argument seperator
-							if(temp.length() > 0) { arg.add(temp); temp = ""; }
-						} else if(c == '!') {	// Seperator
-							if(temp.length() > 0) { arg.add(temp); }
-							arg.add("!"); 
-							temp = "";
-						} else if(c == '=') {	// Seperator
-							if(temp.length() > 0) { arg.add(temp); }
-							arg.add("="); 
-							temp = "";
-						} else {	// Add to buffer
-							temp += c;
-						}
-					}
-				}
+				i++; 
+				if(i < n) {
+					c = buffer.charAt(i);
+					if(keepLineEscapes && (c == 'n' || c == 'r')) temp.append('\\');
+					temp.append(c);
+				} 
+			} else if(c == '"') {
+				inQuote = ! inQuote;
+			} else if(inQuote) {	// Copy up to the next quote or escape
+				int end = i + 1;
+				while(end < n && (c = buffer.charAt(end)) != '"' && c != '\\') end++;
+				temp.append(buffer, i, end);
+				i = end - 1;
+			} else if(Character.isWhitespace(c)) {	// Argument seperator
+				if(temp.length() > 0) { arg.add(temp.toString()); temp.setLength(0); }
+			} else if( ! onlyWhitespace && (c == '!' || c == '=')) {	// Seperator
+				if(temp.length() > 0) { arg.add(temp.toString()); temp.setLength(0); }
+				arg.add((c == '!') ? "!" : "="); 
+			} else {	// Add to buffer up to the next special character
+				int end = i + 1;
+				while(end < n && ! isSpecial(buffer.charAt(end), onlyWhitespace)) end++;
+				temp.append(buffer, i, end);
+				i = end - 1;
 			}
 		}
-		if(temp.length() > 0) { arg.add(temp); temp = ""; }
-		
-		return arg;
+		if(temp.length() > 0) { arg.add(temp.toString()); }
+		if(temp.capacity() > MAX_TOKEN_BUFFER) mToken.remove();	// Do not hold a large buffer
+	}
+	
+	/**
+	 * Determine if a character ends a run of plain characters in an argument.
+	 **/
+	static private boolean isSpecial(char c, boolean onlyWhitespace) {
+		if(c == '\\' || c == '"' || Character.isWhitespace(c)) return true;
+		return ! onlyWhitespace && (c == '!' || c == '=');
 	}
 }
@@ -0,0 +1,173 @@
+package igpp.util;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Run a set of {@link Pipeline}s where some must wait for others to finish. Each pipeline
+ * is a named step which may list the steps it runs after. A step starts as soon as
+ * all the steps it runs after have ended with a status of zero, so steps which do not
+ * depend on each other run at the same time. If a step fails, the steps which run
+ * after it are not run.
+ *<p>
+ * Steps are added in order, and a step may only run after steps already added,
+ * so the steps can not form a loop.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class ProcessGraph {
+	LinkedHashMap<String, Step>	mStep = new LinkedHashMap<String, Step>();
+	volatile boolean	mKilled = false;
+	boolean	mStarted = false;
+
+	public ProcessGraph()
+	{
+	}
+
+	/**
+	 * Add a step.
+	 *
+	 * @param name       the name of the step.
+	 * @param pipeline   the {@link Pipeline} to run.
+	 * @param after      the names of the steps which must end with a status of zero before this step starts.
+	 *
+	 * @throws IllegalArgumentException if the name is already used or a step to run after is not known.
+	 **/
+	public synchronized void add(String name, Pipeline pipeline, String... after)
+	{
+		if(mStarted) throw new IllegalStateException("Already started");
+		if(mStep.containsKey(name)) throw new IllegalArgumentException("Step already added: " + name);
+
+		Step step = new Step(name, pipeline);
+		for(String item : after) {
+			Step previous = mStep.get(item);
+			if(previous == null) throw new IllegalArgumentException("Unknown step: " + item);
+			step.mAfter.add(previous);
+		}
+		mStep.put(name, step);
+	}
+
+	/**
+	 * Add a step which runs one command.
+	 *
+	 * @param name      the name of the step.
+	 * @param command   the command line to run.
+	 * @param after     the names of the steps which must end with a status of zero before this step starts.
+	 *
+	 * @return the {@link Pipeline} created for the command, so its input and output can be set.
+	 **/
+	public Pipeline add(String name, String command, String... after)
+	{
+		Pipeline pipeline = new Pipeline(command);
+		add(name, pipeline, after);
+
+		return pipeline;
+	}
+
+	/**
+	 * Start all steps which do not wait for others. The remaining steps start as the
+	 * steps before them end.
+	 *
+	 * @return the future which completes when every step has ended or been skipped.
+	 *         The value is <code>true</code> if every step ended with a status of zero.
+	 **/
+	public synchronized CompletableFuture<Boolean> start()
+	{
+		if(mStarted) throw new IllegalStateException("Already started");
+		mStarted = true;
+
+		CompletableFuture<?>[] all = new CompletableFuture<?>[mStep.size()];
+		int i = 0;
+		for(final Step step : mStep.values()) {
+			CompletableFuture<?>[] before = new CompletableFuture<?>[step.mAfter.size()];
+			for(int j = 0; j < before.length; j++) before[j] = step.mAfter.get(j).mResult;
+
+			step.mResult = CompletableFuture.allOf(before).thenCompose(new Function<Void, CompletionStage<Integer>>() {
+				public CompletionStage<Integer> apply(Void value) {
+					for(Step previous : step.mAfter) {
+						int status = previous.mResult.join();
+						if(status != 0) throw new CompletionException(new IOException("Not run: step " + previous.mName + " ended with status " + status));
+					}
+					if(mKilled) throw new CompletionException(new IOException("Not run: killed"));
+					return step.mPipeline.start();
+				}
+			});
+			all[i++] = step.mResult;
+		}
+
+		return CompletableFuture.allOf(all).handle(new BiFunction<Void, Throwable, Boolean>() {
+			public Boolean apply(Void value, Throwable error) {
+				if(error != null) return Boolean.FALSE;
+				for(Step step : mStep.values()) {
+					if(step.mResult.join() != 0) return Boolean.FALSE;
+				}
+				return Boolean.TRUE;
+			}
+		});
+	}
+
+	/**
+	 * Stop all running steps. Steps not yet started are not run.
+	 **/
+	public void kill()
+	{
+		mKilled = true;
+		ArrayList<Step> steps;
+		synchronized(this) { steps = new ArrayList<Step>(mStep.values()); }
+		for(Step step : steps) step.mPipeline.kill();
+	}
+
+	/**
+	 * Get the future for the status of a step. It completes exceptionally with an {@link IOException}
+	 * if the step was not run.
+	 *
+	 * @param name   the name of the step.
+	 *
+	 * @return the future, or null if the graph has not started.
+	 **/
+	public synchronized CompletableFuture<Integer> getResult(String name)
+	{
+		Step step = mStep.get(name);
+		if(step == null) throw new IllegalArgumentException("Unknown step: " + name);
+
+		return step.mResult;
+	}
+
+	/**
+	 * Get the {@link Pipeline} for a step.
+	 *
+	 * @param name   the name of the step.
+	 *
+	 * @return the pipeline, or null if there is no step with the name.
+	 **/
+	public synchronized Pipeline getPipeline(String name)
+	{
+		Step step = mStep.get(name);
+
+		return (step == null) ? null : step.mPipeline;
+	}
+
+	/**
+	 * A named pipeline and the steps it runs after.
+	 **/
+	static class Step {
+		String	mName;
+		Pipeline	mPipeline;
+		ArrayList<Step>	mAfter = new ArrayList<Step>();
+		volatile CompletableFuture<Integer>	mResult = null;
+
+		Step(String name, Pipeline pipeline)
+		{
+			mName = name;
+			mPipeline = pipeline;
+		}
+	}
+}
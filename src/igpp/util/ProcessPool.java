@@ -0,0 +1,600 @@
+package igpp.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * A pool of long running worker processes which all run the same command. Requests are
+ * written to the standard in of a worker and the response is read from its standard out,
+ * so a tool called many times is started only once for each worker.
+ *<p>
+ * Requests wait in one queue. A free worker takes the waiting requests, up to the batch size,
+ * and writes them while reading the responses in the same order. The worker must answer
+ * each request in the order received. Messages are framed in one of two ways:
+ *<ul>
+ *<li>{@link #FRAME_LINE} - each request and response is one line of text.</li>
+ *<li>{@link #FRAME_LENGTH} - each request and response is a line with the length of the
+ *    message in bytes, followed by the message (UTF-8). Messages may contain new lines.</li>
+ *</ul>
+ * If a worker exits or its streams fail, the requests it holds fail with an {@link IOException}
+ * and the worker is started again. Standard error of each worker is passed to the error consumer, if set.
+ *<p>
+ * Each worker keeps a count of requests, errors and restarts, the time taken for responses
+ * and the rate of requests.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class ProcessPool {
+	/** Each request and response is one line. */
+	static public final int FRAME_LINE = 0;
+	/** Each request and response is its length in bytes on one line, followed by the content. */
+	static public final int FRAME_LENGTH = 1;
+
+	/** A worker which fails sooner than this after starting is not restarted until this time has passed (milliseconds). */
+	static final long RESTART_WAIT = 1000;
+
+	String	mCommand;
+	String	mHome;
+	int	mSize;
+	int	mFraming = FRAME_LINE;
+	int	mBatchSize = 16;
+	Consumer<String>	mError = null;
+
+	LinkedBlockingQueue<Request>	mQueue = new LinkedBlockingQueue<Request>();
+	Worker[]	mWorker = null;
+	volatile boolean	mClosed = false;
+	long	mStart = 0;
+
+	/**
+	 * Create a pool of workers which run a command in the current directory.
+	 *
+	 * @param command   the command line for a worker.
+	 * @param size      the number of workers.
+	 **/
+	public ProcessPool(String command, int size)
+	{
+		this(command, null, size);
+	}
+
+	/**
+	 * Create a pool of workers which run a command with a specified path as the home directory.
+	 * The command line is parsed as in {@link Process#run(String, String)}.
+	 *
+	 * @param command   the command line for a worker.
+	 * @param home      the path to the home directory in which to run the command. May be null.
+	 * @param size      the number of workers.
+	 **/
+	public ProcessPool(String command, String home, int size)
+	{
+		if(size < 1) throw new IllegalArgumentException("Pool size must be positive");
+		mCommand = command;
+		mHome = home;
+		mSize = size;
+	}
+
+	/**
+	 * Set how requests and responses are framed. Must be set before the pool starts.
+	 *
+	 * @param framing   {@link #FRAME_LINE} (the default) or {@link #FRAME_LENGTH}.
+	 **/
+	public void setFraming(int framing)
+	{
+		if(framing != FRAME_LINE && framing != FRAME_LENGTH) throw new IllegalArgumentException("Unknown framing: " + framing);
+		mFraming = framing;
+	}
+
+	/**
+	 * Set the most requests a worker takes from the queue at once. The default is 16.
+	 *
+	 * @param size   the number of requests.
+	 **/
+	public void setBatchSize(int size)
+	{
+		if(size < 1) throw new IllegalArgumentException("Batch size must be positive");
+		mBatchSize = size;
+	}
+
+	/**
+	 * Set the consumer for lines written to standard error by the workers. If null the lines are discarded.
+	 * If the consumer throws an exception, later lines from that worker are discarded.
+	 *
+	 * @param error   the consumer. It may be called from several threads at once.
+	 **/
+	public void setError(Consumer<String> error) { mError = error; }
+
+	/**
+	 * Start the workers. Called by the first request if not called before.
+	 *
+	 * @throws IllegalStateException if the pool is closed.
+	 **/
+	public synchronized void start()
+	{
+		if(mClosed) throw new IllegalStateException("Pool is closed");
+		if(mWorker != null) return;
+
+		mStart = System.nanoTime();
+		mWorker = new Worker[mSize];
+		for(int i = 0; i < mSize; i++) {
+			mWorker[i] = new Worker(i);
+			mWorker[i].mThread = new Thread(mWorker[i], "ProcessPool-" + i);
+			mWorker[i].mThread.setDaemon(true);
+			mWorker[i].mThread.start();
+		}
+	}
+
+	/**
+	 * Queue a request.
+	 *
+	 * @param request   the request. With {@link #FRAME_LINE} it must not contain a line break.
+	 *
+	 * @return the future for the response. It completes exceptionally with an {@link IOException}
+	 *         if the worker fails or the pool is closed.
+	 **/
+	public CompletableFuture<String> submit(String request)
+	{
+		if(mFraming == FRAME_LINE && (request.indexOf('\n') != -1 || request.indexOf('\r') != -1)) {
+			throw new IllegalArgumentException("Request contains a line break");
+		}
+		if(mWorker == null) start();
+
+		Request item = new Request(request);
+		mQueue.add(item);
+		if(mClosed && mQueue.remove(item)) item.completeExceptionally(new IOException("Pool is closed"));
+
+		return item;
+	}
+
+	/**
+	 * Send a request and wait for the response.
+	 *
+	 * @param request   the request.
+	 *
+	 * @return the response.
+	 *
+	 * @throws IOException if the worker failed or the pool is closed.
+	 * @throws InterruptedException if interrupted while waiting.
+	 **/
+	public String call(String request)
+		throws IOException, InterruptedException
+	{
+		try {
+			return submit(request).get();
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Queue several requests.
+	 *
+	 * @param request   the requests.
+	 *
+	 * @return the futures for the responses, in the order of the requests.
+	 **/
+	public ArrayList<CompletableFuture<String>> submitAll(Iterable<String> request)
+	{
+		ArrayList<CompletableFuture<String>> list = new ArrayList<CompletableFuture<String>>();
+		for(String item : request) list.add(submit(item));
+
+		return list;
+	}
+
+	/**
+	 * Close the pool. Waiting requests fail, the standard in of each worker is closed
+	 * so it may exit, and workers still running after the wait are stopped.
+	 *
+	 * @param wait   the time to wait for workers to exit (milliseconds).
+	 **/
+	public void close(long wait)
+	{
+		Worker[] workers;
+		synchronized(this) {
+			if(mClosed) return;
+			mClosed = true;
+			workers = mWorker;
+		}
+
+		Request item;
+		while((item = mQueue.poll()) != null) item.completeExceptionally(new IOException("Pool is closed"));
+		if(workers == null) return;
+
+		for(int i = 0; i < workers.length; i++) mQueue.add(new Request(null));	// Wake each worker
+
+		long end = System.currentTimeMillis() + wait;
+		for(Worker worker : workers) worker.stop(Math.max(0, end - System.currentTimeMillis()));
+	}
+
+	/**
+	 * Close the pool, waiting up to a few seconds for workers to exit.
+	 **/
+	public void close()
+	{
+		close(5000);
+	}
+
+	/** @return the workers, or null if the pool has not started. */
+	public synchronized Worker[] getWorkers() { return (mWorker == null) ? null : mWorker.clone(); }
+
+	/** @return the number of requests waiting for a worker. */
+	public int getQueueSize() { return mQueue.size(); }
+
+	/** @return the number of requests answered by all workers. */
+	public long getRequestCount()
+	{
+		Worker[] workers = getWorkers();
+		if(workers == null) return 0;
+
+		long count = 0;
+		for(Worker worker : workers) count += worker.getRequestCount();
+		return count;
+	}
+
+	/**
+	 * Get the rate requests have been answered by all workers since the pool started.
+	 *
+	 * @return the number of requests per second.
+	 **/
+	public double getThroughput()
+	{
+		if(mStart == 0) return 0.0;
+		long elapsed = System.nanoTime() - mStart;
+		if(elapsed <= 0) return 0.0;
+
+		return getRequestCount() * 1.0e9 / elapsed;
+	}
+
+	/**
+	 * A queued request and the future for its response.
+	 **/
+	static class Request extends CompletableFuture<String> {
+		String	mRequest;	// null to wake a worker when closing
+
+		Request(String request)
+		{
+			mRequest = request;
+		}
+	}
+
+	/**
+	 * One worker process and the thread which feeds it.
+	 **/
+	public class Worker implements Runnable {
+		int	mIndex;
+		volatile java.lang.Process	mProcess = null;
+		InputStream	mInput = null;
+		OutputStream	mOutput = null;
+		long	mStarted = 0;
+		Thread	mThread = null;
+
+		volatile long	mRequests = 0;
+		volatile long	mErrors = 0;
+		volatile long	mRestarts = 0;
+		volatile long	mBatches = 0;
+		volatile long	mLatency = 0;	// Total nanoseconds
+		volatile long	mMaxLatency = 0;
+		volatile long	mBusy = 0;	// Total nanoseconds
+
+		Worker(int index)
+		{
+			mIndex = index;
+		}
+
+		public void run()
+		{
+			ArrayList<Request> batch = new ArrayList<Request>(mBatchSize);
+
+			try {
+				while( ! mClosed) {
+					batch.clear();
+					Request first = mQueue.take();
+					if(first.mRequest == null) break;	// Closing
+					batch.add(first);
+					mQueue.drainTo(batch, mBatchSize - 1);
+					send(batch);
+				}
+			} catch(InterruptedException e) {
+				// Stopped
+			}
+			for(Request item : batch) {
+				if(item.mRequest != null) item.completeExceptionally(new IOException("Pool is closed"));
+			}
+			shutdown();
+		}
+
+		/**
+		 * Write a batch of requests while reading the responses. The requests are written
+		 * by another task, so a worker which answers before reading all its input can not
+		 * stall with both pipes full. One response is read for each request written,
+		 * and the responses to requests cancelled after they were written are discarded.
+		 **/
+		private void send(ArrayList<Request> batch)
+			throws InterruptedException
+		{
+			// Put back a close marker taken with the batch
+			for(int i = batch.size() - 1; i >= 0; i--) {
+				if(batch.get(i).mRequest == null) { mQueue.add(batch.remove(i)); }
+			}
+
+			// Requests to write - those cancelled while queued are skipped
+			final ArrayList<Request> sent = new ArrayList<Request>(batch.size());
+			for(Request item : batch) {
+				if( ! item.isDone()) sent.add(item);
+			}
+			if(sent.isEmpty()) return;
+
+			int next = 0;
+			Future<?> writer = null;
+			long start = System.nanoTime();
+			try {
+				if(mProcess == null || ! mProcess.isAlive()) launch();
+				long written = System.nanoTime();
+
+				final java.lang.Process process = mProcess;
+				writer = AsyncProcess.getExecutor().submit(new Callable<Void>() {
+					public Void call() throws IOException {
+						try {
+							for(Request item : sent) write(item.mRequest);
+							mOutput.flush();
+						} catch(IOException e) {
+							process.destroy();	// So the reader sees the end of the output
+							throw e;
+						}
+						return null;
+					}
+				});
+
+				for(; next < sent.size(); next++) {
+					String response = read();
+					long latency = System.nanoTime() - written;
+					mLatency += latency;
+					if(latency > mMaxLatency) mMaxLatency = latency;
+					mRequests++;
+					sent.get(next).complete(response);	// Ignored if cancelled
+				}
+				writer.get();
+				mBatches++;
+			} catch(IOException e) {
+				fail(sent, next, e, writer);
+			} catch(ExecutionException e) {
+				fail(sent, next, (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause()), writer);
+			} finally {
+				mBusy += System.nanoTime() - start;
+			}
+		}
+
+		/**
+		 * Fail the requests not answered and end the worker process so it is started again.
+		 **/
+		private void fail(ArrayList<Request> sent, int next, IOException e, Future<?> writer)
+			throws InterruptedException
+		{
+			IOException failure = new IOException("Worker " + mIndex + " failed: " + e.getMessage(), e);
+			for(; next < sent.size(); next++) sent.get(next).completeExceptionally(failure);
+			mErrors++;
+			java.lang.Process process = mProcess;
+			if(process != null) process.destroyForcibly();	// Release a writer blocked on a full pipe
+			shutdown();
+			if(writer != null) {	// Let the writer finish before the streams are replaced
+				try {
+					writer.get();
+				} catch(ExecutionException ignore) {
+					// Already failed
+				}
+			}
+		}
+
+		/**
+		 * Start the worker process.
+		 **/
+		private void launch()
+			throws IOException, InterruptedException
+		{
+			if(mStarted != 0) {	// A restart
+				long age = (System.nanoTime() - mStarted) / 1000000;
+				if(age < RESTART_WAIT) Thread.sleep(RESTART_WAIT - age);
+				mRestarts++;
+			}
+			mStarted = System.nanoTime();
+
+			File homeDir = null;
+			if(mHome != null) homeDir = new File(mHome);
+
+			java.lang.Process process = Process.exec(mCommand, homeDir);
+			mInput = new BufferedInputStream(process.getInputStream());
+			mOutput = new BufferedOutputStream(process.getOutputStream());
+			mProcess = process;
+
+			final InputStream error = process.getErrorStream();
+			AsyncProcess.getExecutor().execute(new Runnable() {
+				public void run() {
+					Consumer<String> consumer = mError;
+					try {
+						BufferedReader reader = new BufferedReader(new InputStreamReader(error));
+						String line;
+						while((line = reader.readLine()) != null) {
+							if(consumer == null) continue;
+							try {
+								consumer.accept(line);
+							} catch(RuntimeException e) {	// Keep reading so the worker is not held
+								consumer = null;
+							}
+						}
+						reader.close();
+					} catch(IOException e) {
+						// Worker ended
+					}
+				}
+			});
+		}
+
+		/**
+		 * Write one request.
+		 **/
+		private void write(String request)
+			throws IOException
+		{
+			byte[] content = request.getBytes(StandardCharsets.UTF_8);
+			if(mFraming == FRAME_LENGTH) {
+				mOutput.write(Integer.toString(content.length).getBytes(StandardCharsets.US_ASCII));
+				mOutput.write('\n');
+				mOutput.write(content);
+			} else {
+				mOutput.write(content);
+				mOutput.write('\n');
+			}
+		}
+
+		/**
+		 * Read one response.
+		 **/
+		private String read()
+			throws IOException
+		{
+			String line = readLine();
+			if(mFraming == FRAME_LINE) return line;
+
+			int length;
+			try {
+				length = Integer.parseInt(line.trim());
+			} catch(NumberFormatException e) {
+				throw new IOException("Bad length: " + line);
+			}
+			if(length < 0) throw new IOException("Bad length: " + line);
+
+			byte[] content = new byte[length];
+			int offset = 0;
+			while(offset < length) {
+				int n = mInput.read(content, offset, length - offset);
+				if(n < 0) throw new EOFException("Worker ended");
+				offset += n;
+			}
+			return new String(content, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Read a line of UTF-8 text. The line break is removed.
+		 **/
+		private String readLine()
+			throws IOException
+		{
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+			int c;
+			while((c = mInput.read()) != '\n') {
+				if(c == -1) throw new EOFException("Worker ended");
+				buffer.write(c);
+			}
+			byte[] line = buffer.toByteArray();
+			int length = line.length;
+			if(length > 0 && line[length - 1] == '\r') length--;
+
+			return new String(line, 0, length, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * End the worker process.
+		 **/
+		private void shutdown()
+		{
+			java.lang.Process process = mProcess;
+			mProcess = null;
+			if(process == null) return;
+
+			try { mOutput.close(); } catch(IOException e) { /* Ignore */ }
+			process.destroy();
+		}
+
+		/**
+		 * Wait for the worker to exit, then stop it if still running.
+		 **/
+		void stop(long wait)
+		{
+			Thread thread = mThread;
+			try {
+				if(thread != null) thread.join(wait);
+			} catch(InterruptedException e) {
+				// Stop now
+			}
+			if(thread != null && thread.isAlive()) thread.interrupt();
+			java.lang.Process process = mProcess;
+			if(process != null) process.destroyForcibly();
+		}
+
+		/** @return the index of the worker in the pool. */
+		public int getIndex() { return mIndex; }
+
+		/** @return <code>true</code> if the worker process is running. */
+		public boolean isAlive()
+		{
+			java.lang.Process process = mProcess;
+			return process != null && process.isAlive();
+		}
+
+		/** @return the number of requests answered. */
+		public long getRequestCount() { return mRequests; }
+
+		/** @return the number of times the worker failed. */
+		public long getErrorCount() { return mErrors; }
+
+		/** @return the number of times the worker process was started again. */
+		public long getRestartCount() { return mRestarts; }
+
+		/** @return the number of batches sent. */
+		public long getBatchCount() { return mBatches; }
+
+		/**
+		 * Get the mean time from writing a batch to reading each response.
+		 *
+		 * @return the time in nanoseconds.
+		 **/
+		public long getMeanLatency()
+		{
+			long count = mRequests;
+			if(count == 0) return 0;
+
+			return mLatency / count;
+		}
+
+		/** @return the longest time from writing a batch to reading a response, in nanoseconds. */
+		public long getMaxLatency() { return mMaxLatency; }
+
+		/**
+		 * Get the rate the worker has answered requests while busy.
+		 *
+		 * @return the number of requests per second.
+		 **/
+		public double getThroughput()
+		{
+			long busy = mBusy;
+			if(busy <= 0) return 0.0;
+
+			return mRequests * 1.0e9 / busy;
+		}
+
+		public String toString()
+		{
+			return "Worker " + mIndex + ": " + mRequests + " requests, " + mErrors + " errors, " + mRestarts + " restarts, "
+				+ (getMeanLatency() / 1000) + " us mean, " + (mMaxLatency / 1000) + " us max, "
+				+ Math.round(getThroughput()) + " requests/s";
+		}
+	}
+}
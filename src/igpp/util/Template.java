@@ -0,0 +1,223 @@
+package igpp.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A text with variables, parsed once so it can be filled in many times.
+ * Variables are written as in {@link VariableList#replaceVariable(String)}, a dollar sign ($)
+ * followed by a name of letters, digits and underscores. The text is split into the
+ * fixed parts and the variables, and each distinct variable is looked up once for each
+ * rendering. A template may be rendered by several threads at once.
+ *<p>
+ * Templates are cached by their text, so compiling the same text again returns the
+ * template already parsed.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class Template {
+	static final int CACHE_SIZE = 1024;
+
+	/** Longest text kept in the cache. */
+	static final int MAX_CACHE_LENGTH = 65536;
+
+	static private ConcurrentHashMap<String, Template> mCache = new ConcurrentHashMap<String, Template>();
+
+	String	mSource;
+	String[]	mLiteral;	// Fixed text before each variable, and after the last
+	int[]	mSlot;	// Index in mName of each variable
+	String[]	mName;	// Distinct variable names
+	int	mLength;	// Total length of the fixed text
+
+	/**
+	 * Parse a text.
+	 **/
+	Template(String source)
+	{
+		ArrayList<String> literal = new ArrayList<String>();
+		ArrayList<Integer> slot = new ArrayList<Integer>();
+		HashMap<String, Integer> index = new HashMap<String, Integer>();
+		ArrayList<String> names = new ArrayList<String>();
+		int start = 0;
+		int len = source.length();
+		int n;
+		char c;
+
+		while((n = source.indexOf('$', start)) != -1) {
+			literal.add(source.substring(start, n));
+			n++;
+			int begin = n;
+			while(n < len) {	// Get variable name
+				c = source.charAt(n);
+				if( ! Character.isLetterOrDigit(c) && c != '_') break;
+				n++;
+			}
+			String name = source.substring(begin, n);
+			Integer i = index.get(name);
+			if(i == null) {
+				i = names.size();
+				index.put(name, i);
+				names.add(name);
+			}
+			slot.add(i);
+			start = n;
+		}
+		literal.add(source.substring(start));
+
+		mSource = source;
+		mLiteral = literal.toArray(new String[literal.size()]);
+		mName = names.toArray(new String[names.size()]);
+		mSlot = new int[slot.size()];
+		for(int i = 0; i < mSlot.length; i++) mSlot[i] = slot.get(i);
+		mLength = 0;
+		for(String item : mLiteral) mLength += item.length();
+	}
+
+	/**
+	 * Get the template for a text.
+	 *
+	 * @param source   the text.
+	 *
+	 * @return the parsed template.
+	 **/
+	static public Template compile(String source)
+	{
+		Template template = mCache.get(source);
+		if(template != null) return template;
+
+		template = new Template(source);
+		if(source.length() <= MAX_CACHE_LENGTH) {
+			if(mCache.size() >= CACHE_SIZE) mCache.clear();
+			mCache.put(source, template);
+		}
+
+		return template;
+	}
+
+	/** @return the text of the template. */
+	public String getSource() { return mSource; }
+
+	/** @return the names of the variables in the template, each once, in order of first use. */
+	public String[] getNames() { return mName.clone(); }
+
+	/** @return <code>true</code> if the template contains variables. */
+	public boolean hasVariables() { return mSlot.length > 0; }
+
+	/**
+	 * Fill in the template with the values in a {@link VariableList}.
+	 * A variable not in the list is replaced with an empty string.
+	 *
+	 * @param list   the variables.
+	 *
+	 * @return the text with each variable replaced with its value.
+	 **/
+	public String render(VariableList list)
+	{
+		if(mSlot.length == 0) return mSource;
+
+		String[] value = list.getValues(mName);
+		StringBuilder buffer = new StringBuilder(mLength + 16 * mSlot.length);
+		try {
+			render(value, buffer);
+		} catch(IOException e) {
+			// Not thrown by StringBuilder
+		}
+
+		return buffer.toString();
+	}
+
+	/**
+	 * Fill in the template with the values in a {@link Map}.
+	 * A variable not in the map is replaced with an empty string.
+	 *
+	 * @param map   the values by name.
+	 *
+	 * @return the text with each variable replaced with its value.
+	 **/
+	public String render(Map<String, String> map)
+	{
+		if(mSlot.length == 0) return mSource;
+
+		StringBuilder buffer = new StringBuilder(mLength + 16 * mSlot.length);
+		try {
+			render(getValues(map), buffer);
+		} catch(IOException e) {
+			// Not thrown by StringBuilder
+		}
+
+		return buffer.toString();
+	}
+
+	/**
+	 * Fill in the template with the values in a {@link VariableList} and write the result.
+	 * The result is not built in memory, so this suits large texts.
+	 *
+	 * @param list     the variables.
+	 * @param writer   the {@link Writer} for the result.
+	 *
+	 * @throws IOException if the writer fails.
+	 **/
+	public void render(VariableList list, Writer writer)
+		throws IOException
+	{
+		render(list.getValues(mName), writer);
+	}
+
+	/**
+	 * Fill in the template with the values in a {@link Map} and write the result.
+	 *
+	 * @param map      the values by name.
+	 * @param writer   the {@link Writer} for the result.
+	 *
+	 * @throws IOException if the writer fails.
+	 **/
+	public void render(Map<String, String> map, Writer writer)
+		throws IOException
+	{
+		render(getValues(map), writer);
+	}
+
+	/**
+	 * Look up the value of each variable in a map.
+	 **/
+	private String[] getValues(Map<String, String> map)
+	{
+		String[] value = new String[mName.length];
+		for(int i = 0; i < mName.length; i++) {
+			value[i] = map.get(mName[i]);
+			if(value[i] == null) value[i] = "";
+		}
+		return value;
+	}
+
+	/**
+	 * Write the fixed text and values in order.
+	 **/
+	private void render(String[] value, Appendable output)
+		throws IOException
+	{
+		for(int i = 0; i < mSlot.length; i++) {
+			output.append(mLiteral[i]);
+			output.append(value[mSlot[i]]);	// A null value is written as "null"
+		}
+		output.append(mLiteral[mSlot.length]);
+	}
+
+	/**
+	 * Get the number of templates in the cache.
+	 *
+	 * @return the number of templates.
+	 **/
+	static public int getCacheSize()
+	{
+		return mCache.size();
+	}
+
+	public String toString() { return mSource; }
+}
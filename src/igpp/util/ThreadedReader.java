@@ -39,10 +39,19 @@ public class ThreadedReader extends Thread {
 		
 		try {
 		   // hold character data in the buffer until we get to the end
-			while((buffer = mReader.readLine()) != null) mBuffer.add(buffer);
+			while((buffer = mReader.readLine()) != null) add(buffer);
 		} catch (Exception e) {
 			// tack the error message onto the end of the data stream
-			mBuffer.add("Error reading:" + e.getMessage());
+			add("Error reading:" + e.getMessage());
 		}
 	}
+	
+	/**
+	 * Add a line to the buffer. The buffer is locked since the readers for
+	 * standard out and standard error usually share one buffer.
+	 **/
+	private void add(String line)
+	{
+		synchronized(mBuffer) { mBuffer.add(line); }
+	}
 }
\ No newline at end of file
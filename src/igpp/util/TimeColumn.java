@@ -0,0 +1,321 @@
+package igpp.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A column of time values converted in bulk from time strings.
+ * Each value is stored as a count of nanoseconds since the epoch (1970-01-01T00:00:00Z)
+ * in a primitive array along with a bitmap indicating which values were parsed.
+ * Values which could not be parsed are set to {@link TimeParser#INVALID}.
+ *<p>
+ * All values in a column are converted with the same pattern using one
+ * {@link TimeConverter}. Large arrays may be converted in parallel on
+ * a {@link ForkJoinPool}, with each task using its own converter.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class TimeColumn {
+	/** Minimum number of values converted by one parallel task. Must be a multiple of 64. */
+	static public final int SPLIT_SIZE = 8192;
+
+	long[]	mValues;
+	long[]	mValid;	// Bitmap. One bit per value
+	int	mSize;
+	int	mInvalid = 0;
+
+	/**
+	 * Create an empty column with room for a number of values.
+	 *
+	 * @param size   the number of values.
+	 **/
+	TimeColumn(int size)
+	{
+		mValues = new long[size];
+		mValid = new long[(size + 63) >>> 6];
+		mSize = size;
+	}
+
+	/**
+	 * Convert an array of time strings.
+	 *
+	 * @param pattern   the name of a standard format (see {@link MultiTime#findSpec(String)})
+	 *                  or a pattern specification.
+	 * @param values    the time strings.
+	 *
+	 * @return the converted column.
+	 *
+	 * @throws IllegalArgumentException if the pattern is not valid.
+	 **/
+	static public TimeColumn convert(String pattern, CharSequence[] values)
+	{
+		TimeColumn column = new TimeColumn(values.length);
+		column.convertRange(new TimeConverter(pattern), values, 0, values.length);
+
+		return column;
+	}
+
+	/**
+	 * Convert a list of time strings.
+	 *
+	 * @param pattern   the name of a standard format (see {@link MultiTime#findSpec(String)})
+	 *                  or a pattern specification.
+	 * @param values    the time strings.
+	 *
+	 * @return the converted column.
+	 *
+	 * @throws IllegalArgumentException if the pattern is not valid.
+	 **/
+	static public TimeColumn convert(String pattern, List<? extends CharSequence> values)
+	{
+		TimeConverter converter = new TimeConverter(pattern);
+		TimeColumn column = new TimeColumn(values.size());
+
+		int i = 0;
+		for(CharSequence value : values) {
+			column.set(i, converter.parse(value));
+			i++;
+		}
+
+		return column;
+	}
+
+	/**
+	 * Convert each line read from a reader. Leading and trailing whitespace
+	 * is removed from each line.
+	 *
+	 * @param pattern   the name of a standard format (see {@link MultiTime#findSpec(String)})
+	 *                  or a pattern specification.
+	 * @param reader    the reader to read lines from. The reader is not closed.
+	 *
+	 * @return the converted column.
+	 *
+	 * @throws IllegalArgumentException if the pattern is not valid.
+	 * @throws IOException if an error occurs while reading.
+	 **/
+	static public TimeColumn convert(String pattern, BufferedReader reader)
+		throws IOException
+	{
+		TimeConverter converter = new TimeConverter(pattern);
+		TimeColumn column = new TimeColumn(1024);
+		String	buffer;
+		int	i = 0;
+
+		while((buffer = reader.readLine()) != null) {
+			if(i == column.mValues.length) column.grow(i * 2);
+			column.set(i, converter.parse(buffer.trim()));
+			i++;
+		}
+		column.mSize = i;
+
+		return column;
+	}
+
+	/**
+	 * Convert an array of time strings in parallel using the common {@link ForkJoinPool}.
+	 * Arrays with fewer than {@link #SPLIT_SIZE} values are converted on the calling thread.
+	 *
+	 * @param pattern   the name of a standard format (see {@link MultiTime#findSpec(String)})
+	 *                  or a pattern specification.
+	 * @param values    the time strings.
+	 *
+	 * @return the converted column.
+	 *
+	 * @throws IllegalArgumentException if the pattern is not valid.
+	 **/
+	static public TimeColumn convertParallel(String pattern, CharSequence[] values)
+	{
+		return convertParallel(pattern, values, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Convert an array of time strings in parallel.
+	 * Arrays with fewer than {@link #SPLIT_SIZE} values are converted on the calling thread.
+	 *
+	 * @param pattern   the name of a standard format (see {@link MultiTime#findSpec(String)})
+	 *                  or a pattern specification.
+	 * @param values    the time strings.
+	 * @param pool      the {@link ForkJoinPool} to run the conversion in.
+	 *
+	 * @return the converted column.
+	 *
+	 * @throws IllegalArgumentException if the pattern is not valid.
+	 **/
+	static public TimeColumn convertParallel(String pattern, CharSequence[] values, ForkJoinPool pool)
+	{
+		TimeConverter converter = new TimeConverter(pattern);	// Validates the pattern
+		TimeColumn column = new TimeColumn(values.length);
+
+		if(values.length < SPLIT_SIZE * 2) {
+			column.convertRange(converter, values, 0, values.length);
+		} else {
+			pool.invoke(new ConvertTask(column, converter.getPattern(), values, 0, values.length));
+			for(long word : column.mValid) column.mInvalid -= Long.bitCount(word);
+			column.mInvalid += values.length;
+		}
+
+		return column;
+	}
+
+	/**
+	 * Convert part of an array in parallel. Ranges are split on multiples of 64
+	 * so each task updates separate words of the bitmap.
+	 **/
+	@SuppressWarnings("serial")	// Never serialized
+	static private class ConvertTask extends RecursiveAction {
+		TimeColumn	mColumn;
+		String	mPattern;
+		CharSequence[]	mValues;
+		int	mStart;
+		int	mEnd;
+
+		ConvertTask(TimeColumn column, String pattern, CharSequence[] values, int start, int end)
+		{
+			mColumn = column;
+			mPattern = pattern;
+			mValues = values;
+			mStart = start;
+			mEnd = end;
+		}
+
+		protected void compute()
+		{
+			if(mEnd - mStart <= SPLIT_SIZE) {
+				TimeConverter converter = new TimeConverter(mPattern);
+				for(int i = mStart; i < mEnd; i++) mColumn.setValue(i, converter.parse(mValues[i]));
+				return;
+			}
+
+			int middle = mStart + (((mEnd - mStart) >>> 1) & ~63);
+			invokeAll(new ConvertTask(mColumn, mPattern, mValues, mStart, middle),
+			          new ConvertTask(mColumn, mPattern, mValues, middle, mEnd));
+		}
+	}
+
+	/**
+	 * Convert part of an array on the calling thread.
+	 **/
+	private void convertRange(TimeConverter converter, CharSequence[] values, int start, int end)
+	{
+		for(int i = start; i < end; i++) set(i, converter.parse(values[i]));
+	}
+
+	/**
+	 * Store a value and count it if it is not valid.
+	 **/
+	private void set(int index, long value)
+	{
+		setValue(index, value);
+		if(value == TimeParser.INVALID) mInvalid++;
+	}
+
+	/**
+	 * Store a value and mark it in the bitmap.
+	 **/
+	private void setValue(int index, long value)
+	{
+		mValues[index] = value;
+		if(value != TimeParser.INVALID) mValid[index >>> 6] |= (1L << index);
+	}
+
+	/**
+	 * Increase the capacity of the column.
+	 **/
+	private void grow(int capacity)
+	{
+		mValues = Arrays.copyOf(mValues, capacity);
+		mValid = Arrays.copyOf(mValid, (capacity + 63) >>> 6);
+	}
+
+	/** @return the number of values in the column. */
+	public int size() { return mSize; }
+
+	/** @return the number of values which could not be parsed. */
+	public int getInvalidCount() { return mInvalid; }
+
+	/**
+	 * Get a value.
+	 *
+	 * @param index   the index of the value.
+	 *
+	 * @return the count of nanoseconds since the epoch or {@link TimeParser#INVALID}.
+	 **/
+	public long get(int index)
+	{
+		if(index >= mSize) throw new ArrayIndexOutOfBoundsException(index);
+
+		return mValues[index];
+	}
+
+	/**
+	 * Get a value as a count of milliseconds since the epoch.
+	 *
+	 * @param index   the index of the value.
+	 *
+	 * @return the count of milliseconds since the epoch or {@link TimeParser#INVALID}.
+	 **/
+	public long getMillis(int index)
+	{
+		long value = get(index);
+		if(value == TimeParser.INVALID) return value;
+
+		return Math.floorDiv(value, 1000000L);
+	}
+
+	/**
+	 * Determine if a value was parsed.
+	 *
+	 * @param index   the index of the value.
+	 *
+	 * @return <code>true</code> if the value was parsed, otherwise <code>false</code>.
+	 **/
+	public boolean isValid(int index)
+	{
+		if(index >= mSize) throw new ArrayIndexOutOfBoundsException(index);
+
+		return (mValid[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Get the values. The array is trimmed to the size of the column.
+	 *
+	 * @return an array of the count of nanoseconds since the epoch for each value.
+	 **/
+	public long[] getValues()
+	{
+		if(mValues.length != mSize) mValues = Arrays.copyOf(mValues, mSize);
+
+		return mValues;
+	}
+
+	/**
+	 * Get the bitmap of valid values. Bit <code>i</code> of word <code>i/64</code>
+	 * is set if value <code>i</code> was parsed.
+	 *
+	 * @return the bitmap as an array of words.
+	 **/
+	public long[] getValidity()
+	{
+		int words = (mSize + 63) >>> 6;
+		if(mValid.length != words) mValid = Arrays.copyOf(mValid, words);
+
+		return mValid;
+	}
+
+	/**
+	 * Get the bitmap of valid values as a {@link BitSet}.
+	 *
+	 * @return a new {@link BitSet} with a bit set for each value which was parsed.
+	 **/
+	public BitSet getValidBits()
+	{
+		return BitSet.valueOf(getValidity());
+	}
+}
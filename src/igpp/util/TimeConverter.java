@@ -0,0 +1,161 @@
+package igpp.util;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+
+/**
+ * Converts time strings with one pattern into counts of nanoseconds since the
+ * epoch (1970-01-01T00:00:00Z). The pattern is resolved once when the converter is
+ * created and the parser state is reused for every value, which makes a converter
+ * suitable for converting many values such as a column of a table.
+ *<p>
+ * The patterns are the same as those allowed by {@link EpochTime#convert(String, String)}.
+ * A converter is not thread safe. Create one converter per thread.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class TimeConverter {
+	static final long NANOS_PER_SECOND = 1000000000L;
+	static final long NANOS_PER_MILLI = 1000000L;
+
+	static final int KIND_BINARY = 0;
+	static final int KIND_ISO8601 = 1;
+	static final int KIND_FORMAT = 2;
+
+	static private TimeZone mGMT = TimeZone.getTimeZone("GMT-0:00");
+
+	String	mPattern;
+	int	mKind;
+	long	mReference = 0;	// Seconds from the epoch to the reference year for binary time
+	TimeParser	mParser = null;
+	SimpleDateFormat	mFormat = null;
+	ParsePosition	mPosition = null;
+	boolean	mStrict = false;
+
+	/**
+	 * Create a converter for a pattern.
+	 *
+	 * @param pattern   the name of a standard format (see {@link MultiTime#findSpec(String)})
+	 *                  or a pattern specification.
+	 *
+	 * @throws IllegalArgumentException if the pattern is not valid.
+	 **/
+	public TimeConverter(String pattern)
+	{
+		if(pattern == null || pattern.length() == 0) throw new IllegalArgumentException("Pattern is empty");
+
+		mPattern = MultiTime.findSpec(pattern);
+		if(mPattern.charAt(0) == 'B') {	// Special case - binary seconds from reference year
+			int year;
+
+			if(mPattern.length() < 5) year = 1966;	// Cline Time
+			else year = Integer.parseInt(mPattern.substring(1));
+
+			mKind = KIND_BINARY;
+			mReference = TimeParser.toEpochDay(year, 1, 1) * 86400L;
+		} else if(mPattern.charAt(0) == 'T') {	// Special case - PDS style time
+			mKind = KIND_ISO8601;
+			mParser = new TimeParser();
+		} else {
+			mKind = KIND_FORMAT;
+			mFormat = (SimpleDateFormat) DateFormatCache.getFormat(mPattern, mGMT).clone();
+			mPosition = new ParsePosition(0);
+		}
+	}
+
+	/**
+	 * Get the resolved pattern specification.
+	 *
+	 * @return the pattern used to parse values.
+	 **/
+	public String getPattern()
+	{
+		return mPattern;
+	}
+
+	/**
+	 * Set whether values must match the pattern exactly. When strict, the entire
+	 * value must be consumed by the pattern and out of range fields are rejected
+	 * (see {@link TimeParser#isInRange()}).
+	 * The default is to parse leniently as done by {@link MultiTime#convert(String, String)}.
+	 *
+	 * @param strict   <code>true</code> to parse strictly.
+	 **/
+	public void setStrict(boolean strict)
+	{
+		mStrict = strict;
+		if(mFormat != null) mFormat.setLenient( ! strict);
+	}
+
+	/**
+	 * Determine whether values must match the pattern exactly.
+	 *
+	 * @return <code>true</code> if parsing is strict.
+	 **/
+	public boolean isStrict()
+	{
+		return mStrict;
+	}
+
+	/**
+	 * Parse a time string into a count of nanoseconds since the epoch.
+	 * The values "EOM" and "LAUNCH" return the nanoseconds of
+	 * {@link EpochTime#ETERNITY} and {@link EpochTime#DAWN}.
+	 *
+	 * @param value   the time string.
+	 *
+	 * @return the count of nanoseconds or {@link TimeParser#INVALID} if the string could not be parsed.
+	 **/
+	public long parse(CharSequence value)
+	{
+		if(value == null || value.length() == 0) return TimeParser.INVALID;
+
+		if(isWord(value, "EOM")) return EpochTime.ETERNITY.getEpochNanos();
+		if(isWord(value, "LAUNCH")) return EpochTime.DAWN.getEpochNanos();
+
+		try {
+			switch(mKind) {
+				case KIND_BINARY:
+					double seconds = Double.parseDouble(value.toString());
+					long whole = (long) Math.floor(seconds);
+					long nano = Math.round((seconds - whole) * 1000.0) * NANOS_PER_MILLI;	// Millisecond resolution
+					return TimeParser.toEpochNanos(mReference + whole, nano);
+				case KIND_ISO8601:
+					if( ! mParser.scanISO8601(value, false)) return TimeParser.INVALID;
+					if(mStrict && ! mParser.isInRange()) return TimeParser.INVALID;
+					return mParser.toEpochNanos();
+				default:
+					mPosition.setIndex(0);
+					mPosition.setErrorIndex(-1);
+					String buffer = value.toString();
+					if(mFormat.parse(buffer, mPosition) == null) return TimeParser.INVALID;
+					if(mStrict && mPosition.getIndex() != buffer.length()) return TimeParser.INVALID;
+					Calendar cal = mFormat.getCalendar();	// Holds the parsed time
+					int n = cal.get(Calendar.YEAR);
+					if(n >= 20 && n < 100) cal.add(Calendar.YEAR, 1900);
+					if(n >= 0 && n < 20) cal.add(Calendar.YEAR, 2000);
+					long milli = cal.getTimeInMillis();
+					return TimeParser.toEpochNanos(Math.floorDiv(milli, 1000L), Math.floorMod(milli, 1000L) * NANOS_PER_MILLI);
+			}
+		} catch(Exception e) {
+			return TimeParser.INVALID;
+		}
+	}
+
+	/**
+	 * Compare a value to a word ignoring case.
+	 **/
+	static private boolean isWord(CharSequence value, String word)
+	{
+		int n = word.length();
+		if(value.length() != n) return false;
+		for(int i = 0; i < n; i++) {
+			if(Character.toUpperCase(value.charAt(i)) != word.charAt(i)) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,214 @@
+package igpp.util;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Determines which of the standard time formats defined in {@link Date} a
+ * time string has and remembers the format for each source of values (such as a
+ * file and column). Once a format is learned for a source, values from that source
+ * are parsed directly with the matching {@link TimeConverter}. Detection is
+ * repeated only when a value can not be parsed with the learned format.
+ *<p>
+ * The learned formats are shared by all threads. Each thread uses its own converters.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class TimeDetector {
+	/**
+	 * The formats tried in order during detection.
+	 * Formats which are not valid for {@link java.text.SimpleDateFormat}
+	 * ({@link Date#ISO} and {@link Date#NIPPONDATE}) are not detected.
+	 **/
+	static public final String[] CANDIDATES = {
+		Date.ISO8601, Date.CONVENTION, Date.DFS, Date.ABBRDFS, Date.DOY, Date.HIGHLOW,
+		Date.ISEEDATE, Date.JAPANDATE, Date.AMERDATE, Date.EURODATE, Date.CLUSTER,
+		Date.AMER, Date.EURO, Date.BINARY
+	};
+
+	// Strict converters used for detection
+	static private ThreadLocal<TimeConverter[]> mProbes = new ThreadLocal<TimeConverter[]>() {
+		protected TimeConverter[] initialValue() {
+			TimeConverter[] probe = new TimeConverter[CANDIDATES.length];
+			for(int i = 0; i < probe.length; i++) {
+				probe[i] = new TimeConverter(CANDIDATES[i]);
+				probe[i].setStrict(true);
+			}
+			return probe;
+		}
+	};
+
+	ConcurrentHashMap<String, String>	mLearned = new ConcurrentHashMap<String, String>();
+
+	ThreadLocal<HashMap<String, TimeConverter>>	mConverters = new ThreadLocal<HashMap<String, TimeConverter>>() {
+		protected HashMap<String, TimeConverter> initialValue() { return new HashMap<String, TimeConverter>(); }
+	};
+
+	public TimeDetector()
+	{
+	}
+
+	/**
+	 * Determine which standard format a time string has.
+	 *
+	 * @param sample   the time string.
+	 *
+	 * @return the pattern of the matching format (one of {@link #CANDIDATES})
+	 *         or null if no format matches.
+	 **/
+	static public String detect(CharSequence sample)
+	{
+		if(sample == null || sample.length() == 0) return null;
+
+		TimeConverter[] probe = mProbes.get();
+
+		// A plain number is binary time unless it is just a year
+		int shape = getNumberShape(sample);
+		if(shape == 2) return Date.BINARY;
+		if(shape == 1) return Date.ISO8601;
+
+		for(int i = 0; i < probe.length - 1; i++) {	// BINARY is last and already checked
+			if(probe[i].parse(sample) != TimeParser.INVALID) return CANDIDATES[i];
+		}
+
+		return null;
+	}
+
+	/**
+	 * Parse a time string in any of the standard formats.
+	 *
+	 * @param sample   the time string.
+	 *
+	 * @return the count of nanoseconds since the epoch or {@link TimeParser#INVALID}
+	 *         if the value does not match any format.
+	 **/
+	static public long parseAny(CharSequence sample)
+	{
+		if(sample == null || sample.length() == 0) return TimeParser.INVALID;
+
+		TimeConverter[] probe = mProbes.get();
+		long nanos;
+
+		int shape = getNumberShape(sample);
+		if(shape == 2) return probe[probe.length - 1].parse(sample);	// BINARY
+		if(shape == 1) return probe[0].parse(sample);	// ISO8601
+
+		for(int i = 0; i < probe.length - 1; i++) {
+			nanos = probe[i].parse(sample);
+			if(nanos != TimeParser.INVALID) return nanos;
+		}
+
+		return TimeParser.INVALID;
+	}
+
+	/**
+	 * Classify a value as a number.
+	 *
+	 * @return 0 if not a number, 1 if an integer of up to 4 digits (a year)
+	 *         and 2 for any other number.
+	 **/
+	static private int getNumberShape(CharSequence sample)
+	{
+		int	digits = 0;
+		boolean	point = false;
+		char	c;
+
+		for(int i = 0; i < sample.length(); i++) {
+			c = sample.charAt(i);
+			if(c >= '0' && c <= '9') { digits++; continue; }
+			if(c == '.' && ! point) { point = true; continue; }
+			if((c == '-' || c == '+') && i == 0) continue;
+			return 0;
+		}
+		if(digits == 0) return 0;
+		if( ! point && digits <= 4 && sample.charAt(0) != '-') return 1;
+
+		return 2;
+	}
+
+	/**
+	 * Parse a time string from a source. The format learned for the source
+	 * is used if one is known, otherwise the format is detected and learned.
+	 *
+	 * @param source   the name of the source of the value (for example "file.csv:3").
+	 * @param value    the time string.
+	 *
+	 * @return the count of nanoseconds since the epoch or {@link TimeParser#INVALID}
+	 *         if the value does not match any format.
+	 **/
+	public long parse(String source, CharSequence value)
+	{
+		String pattern = mLearned.get(source);
+		long nanos;
+
+		if(pattern != null) {
+			nanos = getConverter(pattern).parse(value);
+			if(nanos != TimeParser.INVALID) return nanos;
+		}
+
+		// Miss - detect again
+		String detected = detect(value);
+		if(detected == null) return TimeParser.INVALID;
+		if( ! detected.equals(pattern)) mLearned.put(source, detected);
+
+		return getConverter(detected).parse(value);
+	}
+
+	/**
+	 * Obtain the converter for a pattern for the calling thread.
+	 **/
+	private TimeConverter getConverter(String pattern)
+	{
+		HashMap<String, TimeConverter> map = mConverters.get();
+		TimeConverter converter = map.get(pattern);
+		if(converter == null) {
+			converter = new TimeConverter(pattern);
+			converter.setStrict(true);	// So a change in format is noticed
+			map.put(pattern, converter);
+		}
+
+		return converter;
+	}
+
+	/**
+	 * Get the format learned for a source.
+	 *
+	 * @param source   the name of the source.
+	 *
+	 * @return the pattern for the source or null if none has been learned.
+	 **/
+	public String getPattern(String source)
+	{
+		return mLearned.get(source);
+	}
+
+	/**
+	 * Set the format for a source.
+	 *
+	 * @param source    the name of the source.
+	 * @param pattern   the name of a standard format or the pattern specification.
+	 **/
+	public void setPattern(String source, String pattern)
+	{
+		mLearned.put(source, MultiTime.findSpec(pattern));
+	}
+
+	/**
+	 * Forget the format learned for a source.
+	 *
+	 * @param source   the name of the source.
+	 **/
+	public void forget(String source)
+	{
+		mLearned.remove(source);
+	}
+
+	/**
+	 * Forget all learned formats.
+	 **/
+	public void clear()
+	{
+		mLearned.clear();
+	}
+}
@@ -0,0 +1,526 @@
+package igpp.util;
+
+import java.util.Calendar;
+
+/**
+ * A single pass, character scanning parser for ISO-8601 time strings.
+ * The parser examines each character once and keeps the parsed fields
+ * as primitive values so that no intermediate {@link String}, array or
+ * {@link Calendar} objects are created while parsing. The parsed time
+ * can be retrieved as a count of milliseconds or nanoseconds since the
+ * epoch (1970-01-01T00:00:00Z) using the proleptic Gregorian calendar.
+ *<p>
+ * Accepted forms are YYYY[-MM-DD|-DOY][(T| )hh[:mm[:ss[.fff]]][(+|-)hh[[:]mm]]][Z]
+ * which are the same forms accepted by {@link Date#parseISO8601(String, Boolean)}.
+ * Any unspecified fields are set to the minimum (floor) or maximum (ceil) allowed value.
+ * A time zone offset is added to the time as has always been done by {@link Date}.
+ *<p>
+ * An instance holds the state of the last parse and is not thread safe.
+ * Create one instance per thread and reuse it for each value.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class TimeParser {
+	/** Returned when a time string can not be parsed. */
+	static public final long INVALID = Long.MIN_VALUE;
+
+	/** Only the year was specified. */
+	static public final int PRECISION_YEAR = 0;
+	/** The year and month were specified. */
+	static public final int PRECISION_MONTH = 1;
+	/** The year and day (day of month or day of year) were specified. */
+	static public final int PRECISION_DAY = 2;
+	/** The hour was specified. */
+	static public final int PRECISION_HOUR = 3;
+	/** The minute was specified. */
+	static public final int PRECISION_MINUTE = 4;
+	/** The second was specified. */
+	static public final int PRECISION_SECOND = 5;
+	/** A fraction of a second was specified. */
+	static public final int PRECISION_FRACTION = 6;
+
+	static final long MILLIS_PER_DAY = 86400000L;
+	static final long SECONDS_PER_DAY = 86400L;
+	static final long NANOS_PER_SECOND = 1000000000L;
+	static final long NANOS_PER_MILLI = 1000000L;
+
+	int	mYear = 1970;
+	int	mMonth = 1;	// January = 1
+	int	mDay = 1;
+	int	mDayOfYear = 0;	// 0 = not a day of year form
+	int	mHour = 0;
+	int	mMinute = 0;
+	int	mSecond = 0;
+	int	mNano = 0;
+	int	mOffset = 0;	// In minutes
+	int	mPrecision = PRECISION_YEAR;
+	boolean	mValid = false;
+
+	// Scan state
+	CharSequence	mText;
+	int	mPos;
+	int	mEnd;
+	int	mDigits;
+
+	public TimeParser()
+	{
+	}
+
+	/**
+	 * Parses an ISO-8601 formatted time string and returns the count of
+	 * milliseconds since the epoch (1970-01-01T00:00:00Z).
+	 *
+	 * @param text   the ISO-8601 time string.
+	 * @param ceil   indicate if maximum value is assumed for non-specified parts.
+	 *               If <code>false</code> minimum (floor) value is assumed.
+	 *
+	 * @return the number of milliseconds since the epoch or {@link #INVALID}
+	 *         if the string could not be parsed.
+	 **/
+	public long parseISO8601(CharSequence text, boolean ceil)
+	{
+		if( ! scanISO8601(text, ceil)) return INVALID;
+
+		return toEpochMillis();
+	}
+
+	/**
+	 * Parses an ISO-8601 formatted time string and returns the count of
+	 * nanoseconds since the epoch (1970-01-01T00:00:00Z).
+	 *
+	 * @param text   the ISO-8601 time string.
+	 * @param ceil   indicate if maximum value is assumed for non-specified parts.
+	 *               If <code>false</code> minimum (floor) value is assumed.
+	 *
+	 * @return the number of nanoseconds since the epoch or {@link #INVALID}
+	 *         if the string could not be parsed. See {@link #toEpochNanos()}
+	 *         for the range of times which can be represented.
+	 **/
+	public long parseISO8601Nanos(CharSequence text, boolean ceil)
+	{
+		if( ! scanISO8601(text, ceil)) return INVALID;
+
+		return toEpochNanos();
+	}
+
+	/**
+	 * Scans an ISO-8601 formatted time string and sets the fields of the parser.
+	 * Scanning stops at the first "Z" in the string. If the string can not be parsed
+	 * the fields parsed before the error are retained and all others are set to the
+	 * minimum allowed value.
+	 *
+	 * @param text   the ISO-8601 time string.
+	 * @param ceil   indicate if maximum value is assumed for non-specified parts.
+	 *               If <code>false</code> minimum (floor) value is assumed.
+	 *
+	 * @return <code>true</code> if the string was parsed, otherwise <code>false</code>.
+	 **/
+	public boolean scanISO8601(CharSequence text, boolean ceil)
+	{
+		reset();
+		if(text == null) return false;
+
+		mText = text;
+		mPos = 0;
+		mEnd = text.length();
+		for(int i = 0; i < mEnd; i++) {	// Remove time zone information
+			if(text.charAt(i) == 'Z') { mEnd = i; break; }
+		}
+		while(mEnd > 0 && text.charAt(mEnd - 1) <= ' ') mEnd--;	// Trailing whitespace
+
+		mValid = scan();
+		mText = null;
+
+		if( ! mValid) ceil = false;	// Floor for what remains
+		setLimit(ceil);
+
+		return mValid;
+	}
+
+	/**
+	 * Scan the fields of the current text.
+	 *
+	 * @return <code>true</code> if all text was consumed, otherwise <code>false</code>.
+	 **/
+	private boolean scan()
+	{
+		int	value;
+
+		// Year
+		value = readInt();
+		if(mDigits == 0) return false;
+		mYear = value;
+		mPrecision = PRECISION_YEAR;
+		if(atEnd()) return true;
+		if( ! accept('-')) return false;
+
+		// Month or DOY
+		value = readInt();
+		if(mDigits == 0) return false;
+		if(accept('-')) {	// Month
+			mMonth = value;
+			mPrecision = PRECISION_MONTH;
+			if(atEnd()) return true;
+
+			value = readInt();
+			if(mDigits == 0) return false;
+			mDay = value;
+		} else {	// DOY
+			mDayOfYear = value;
+		}
+		mPrecision = PRECISION_DAY;
+		if(atEnd()) return true;
+
+		// Allow "T" or " " as separator
+		if( ! accept('T') && ! accept(' ')) return false;
+		if(atEnd()) return true;
+
+		// Hour
+		value = readInt();
+		if(mDigits == 0) return false;
+		mHour = value;
+		mPrecision = PRECISION_HOUR;
+
+		// Minute
+		if(accept(':')) {
+			value = readInt();
+			if(mDigits == 0) return false;
+			mMinute = value;
+			mPrecision = PRECISION_MINUTE;
+
+			// Seconds
+			if(accept(':')) {
+				value = readInt();
+				if(mDigits == 0) return false;
+				mSecond = value;
+				mPrecision = PRECISION_SECOND;
+
+				// Fraction of a second
+				if(accept('.')) {
+					if( ! readFraction()) return false;
+					mPrecision = PRECISION_FRACTION;
+				}
+			}
+		}
+		if(atEnd()) return true;
+
+		// Find offsets if any. Form is [+-]hh[[:]mm]
+		int sign = 1;
+		if(accept('-')) sign = -1;
+		else if( ! accept('+')) return false;
+
+		int offset = 0;
+		int start = mPos;
+		value = readInt();
+		if(mDigits == 0) return false;
+		if(mDigits == 4) {	// hhmm
+			offset = 60 * (value / 100) + (value % 100);
+		} else if(mDigits <= 2) {
+			offset = 60 * value;
+			if(accept(':')) {
+				value = readInt();
+				if(mDigits == 0) return false;
+				offset += value;
+			}
+		} else {
+			mPos = start;
+			return false;
+		}
+		mOffset = sign * offset;
+
+		return atEnd();
+	}
+
+	/**
+	 * Set the maximum (ceil) or minimum (floor) value for all fields
+	 * which are of lower order than the current precision.
+	 *
+	 * @param ceil   indicate if maximum value is assumed for non-specified parts.
+	 *               If <code>false</code> minimum (floor) value is assumed.
+	 **/
+	private void setLimit(boolean ceil)
+	{
+		if(mPrecision < PRECISION_MONTH) mMonth = ceil ? 12 : 1;
+		if(mPrecision < PRECISION_DAY && mDayOfYear == 0) mDay = ceil ? getDaysInMonth(mYear, mMonth) : 1;
+		if(mPrecision < PRECISION_HOUR) mHour = ceil ? 23 : 0;
+		if(mPrecision < PRECISION_MINUTE) mMinute = ceil ? 59 : 0;
+		if(mPrecision < PRECISION_SECOND) mSecond = ceil ? 59 : 0;
+		if(mPrecision < PRECISION_FRACTION) mNano = ceil ? 999999999 : 0;
+	}
+
+	/**
+	 * Reset all fields to the minimum allowed value.
+	 **/
+	public void reset()
+	{
+		mYear = 1970;
+		mMonth = 1;
+		mDay = 1;
+		mDayOfYear = 0;
+		mHour = 0;
+		mMinute = 0;
+		mSecond = 0;
+		mNano = 0;
+		mOffset = 0;
+		mPrecision = PRECISION_YEAR;
+		mValid = false;
+	}
+
+	private boolean atEnd()
+	{
+		return mPos >= mEnd;
+	}
+
+	private boolean accept(char c)
+	{
+		if(mPos < mEnd && mText.charAt(mPos) == c) { mPos++; return true; }
+		return false;
+	}
+
+	/**
+	 * Read a run of decimal digits as an integer. The number of digits read is
+	 * placed in mDigits.
+	 **/
+	private int readInt()
+	{
+		int	value = 0;
+		char	c;
+
+		mDigits = 0;
+		while(mPos < mEnd) {
+			c = mText.charAt(mPos);
+			if(c < '0' || c > '9') break;
+			if(mDigits < 9) value = value * 10 + (c - '0');
+			mDigits++;
+			mPos++;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Read a run of decimal digits as a fraction of a second. Digits past
+	 * nanosecond resolution are ignored.
+	 **/
+	private boolean readFraction()
+	{
+		int	value = 0;
+		int	scale = 9;
+		char	c;
+
+		mDigits = 0;
+		while(mPos < mEnd) {
+			c = mText.charAt(mPos);
+			if(c < '0' || c > '9') break;
+			if(scale > 0) { value = value * 10 + (c - '0'); scale--; }
+			mDigits++;
+			mPos++;
+		}
+		if(mDigits == 0) return false;
+
+		while(scale > 0) { value *= 10; scale--; }
+		mNano = value;
+
+		return true;
+	}
+
+	/**
+	 * Convert the parsed fields to the count of days since the epoch (1970-01-01).
+	 *
+	 * @return the number of days since the epoch.
+	 **/
+	public long toEpochDay()
+	{
+		if(mDayOfYear != 0) return toEpochDay(mYear, 1, 1) + mDayOfYear - 1;
+
+		return toEpochDay(mYear, mMonth, mDay);
+	}
+
+	/**
+	 * Convert the parsed fields to the count of seconds since the epoch (1970-01-01T00:00:00Z).
+	 *
+	 * @return the number of seconds since the epoch.
+	 **/
+	public long toEpochSecond()
+	{
+		return toEpochDay() * SECONDS_PER_DAY + mHour * 3600L + mMinute * 60L + mSecond + mOffset * 60L;
+	}
+
+	/**
+	 * Convert the parsed fields to the count of milliseconds since the epoch (1970-01-01T00:00:00Z).
+	 *
+	 * @return the number of milliseconds since the epoch.
+	 **/
+	public long toEpochMillis()
+	{
+		return toEpochSecond() * 1000L + mNano / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Convert the parsed fields to the count of nanoseconds since the epoch (1970-01-01T00:00:00Z).
+	 * A long can hold nanoseconds for the years 1677 through 2262. Earlier times are returned
+	 * as <code>Long.MIN_VALUE + 1</code> and later times as <code>Long.MAX_VALUE</code>.
+	 *
+	 * @return the number of nanoseconds since the epoch.
+	 **/
+	public long toEpochNanos()
+	{
+		return toEpochNanos(toEpochSecond(), mNano);
+	}
+
+	/**
+	 * Set a {@link Calendar} to the parsed fields. The fields are set
+	 * as the wall clock time in the time zone of the calendar.
+	 *
+	 * @param cal the {@link Calendar} to set.
+	 *
+	 * @return the {@link Calendar} argument is altered.
+	 **/
+	public Calendar toCalendar(Calendar cal)
+	{
+		cal.clear();
+		cal.set(Calendar.YEAR, mYear);
+		if(mDayOfYear != 0) {
+			cal.set(Calendar.DAY_OF_YEAR, mDayOfYear);
+		} else {
+			cal.set(Calendar.MONTH, mMonth - 1);	// January = 0
+			cal.set(Calendar.DAY_OF_MONTH, mDay);
+		}
+		cal.set(Calendar.HOUR_OF_DAY, mHour);
+		cal.set(Calendar.MINUTE, mMinute);
+		cal.set(Calendar.SECOND, mSecond);
+		cal.set(Calendar.MILLISECOND, (int) (mNano / NANOS_PER_MILLI));
+		if(mOffset != 0) cal.add(Calendar.MINUTE, mOffset);
+
+		return cal;
+	}
+
+	/**
+	 * Determine if the parsed fields are within the allowed range for each field.
+	 * Scanning is lenient and out of range values roll into the next field,
+	 * so this can be used to reject strings which only look like ISO-8601.
+	 *
+	 * @return <code>true</code> if all fields are within range, otherwise <code>false</code>.
+	 **/
+	public boolean isInRange()
+	{
+		if(mDayOfYear != 0) {
+			if(mDayOfYear > (isLeapYear(mYear) ? 366 : 365)) return false;
+		} else {
+			if(mMonth < 1 || mMonth > 12) return false;
+			if(mDay < 1 || mDay > getDaysInMonth(mYear, mMonth)) return false;
+		}
+		if(mHour > 23 || mMinute > 59 || mSecond > 60) return false;	// Allow leap second
+		if(mOffset < -24 * 60 || mOffset > 24 * 60) return false;
+
+		return true;
+	}
+
+	/** @return <code>true</code> if the last scan parsed the entire string. */
+	public boolean isValid() { return mValid; }
+
+	/** @return the precision of the last scan. One of the PRECISION_ values. */
+	public int getPrecision() { return mPrecision; }
+
+	/** @return the year. */
+	public int getYear() { return mYear; }
+
+	/** @return the month (January = 1). */
+	public int getMonth() { return mMonth; }
+
+	/** @return the day of the month. */
+	public int getDay() { return mDay; }
+
+	/** @return the day of the year or 0 if a month and day were given. */
+	public int getDayOfYear() { return mDayOfYear; }
+
+	/** @return the hour of the day. */
+	public int getHour() { return mHour; }
+
+	/** @return the minute. */
+	public int getMinute() { return mMinute; }
+
+	/** @return the second. */
+	public int getSecond() { return mSecond; }
+
+	/** @return the fraction of a second in nanoseconds. */
+	public int getNano() { return mNano; }
+
+	/** @return the time zone offset in minutes. */
+	public int getOffset() { return mOffset; }
+
+	/**
+	 * Determine if a year is a leap year in the proleptic Gregorian calendar.
+	 *
+	 * @param year   the year.
+	 *
+	 * @return <code>true</code> if the year is a leap year, otherwise <code>false</code>.
+	 **/
+	static public boolean isLeapYear(long year)
+	{
+		return (year % 4 == 0) && ((year % 100 != 0) || (year % 400 == 0));
+	}
+
+	/**
+	 * Determines the number of days in a month.
+	 *
+	 * @param year   the year.
+	 * @param month  the month (January = 1).
+	 *
+	 * @return the count of the number of days in the month.
+	 **/
+	static public int getDaysInMonth(int year, int month)
+	{
+		switch(month) {
+			case 2: return isLeapYear(year) ? 29 : 28;
+			case 4: case 6: case 9: case 11: return 30;
+			default: return 31;
+		}
+	}
+
+	/**
+	 * Convert a date to the count of days since the epoch (1970-01-01)
+	 * in the proleptic Gregorian calendar. Months outside the range 1 to 12
+	 * and days past the end of the month are rolled into the following periods.
+	 *
+	 * @param year   the year.
+	 * @param month  the month (January = 1).
+	 * @param day    the day of the month.
+	 *
+	 * @return the number of days since the epoch.
+	 **/
+	static public long toEpochDay(long year, int month, int day)
+	{
+		// Normalize the month
+		year += Math.floorDiv(month - 1, 12);
+		month = Math.floorMod(month - 1, 12) + 1;
+
+		// Count days in 400 year eras starting March 1
+		long y = (month <= 2) ? year - 1 : year;
+		long era = Math.floorDiv(y, 400);
+		long yoe = y - era * 400;
+		long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+		return era * 146097 + doe - 719468;
+	}
+
+	/**
+	 * Combine a count of seconds and a fraction of a second into a count of nanoseconds.
+	 * Times beyond the range of a long are limited to <code>Long.MIN_VALUE + 1</code>
+	 * and <code>Long.MAX_VALUE</code>.
+	 *
+	 * @param seconds   the number of seconds since the epoch.
+	 * @param nano   the fraction of a second in nanoseconds.
+	 *
+	 * @return the number of nanoseconds since the epoch.
+	 **/
+	static public long toEpochNanos(long seconds, long nano)
+	{
+		if(seconds > Long.MAX_VALUE / NANOS_PER_SECOND - 1) return Long.MAX_VALUE;
+		if(seconds < Long.MIN_VALUE / NANOS_PER_SECOND + 1) return Long.MIN_VALUE + 1;
+
+		return seconds * NANOS_PER_SECOND + nano;
+	}
+}
@@ -0,0 +1,334 @@
+package igpp.util;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Create a tree digest (Merkle root) for a file. The file is split into blocks of
+ * a fixed size which are digested in parallel on a {@link ForkJoinPool}.
+ * The digest of each block is kept so damaged or missing parts of a
+ * file can be found by comparing block digests (see {@link #findDifferences(String[])}).
+ *<p>
+ * Each block digest is the plain digest of the bytes in the block, so a block can be
+ * checked with other tools. In the tree each block is a leaf whose digest is the digest
+ * of the byte 0x00 followed by the block digest. The root is formed by combining pairs of
+ * digests level by level, where the digest of a pair is the digest of the byte 0x01 followed
+ * by the left and right digests. The different first bytes keep a leaf from being taken
+ * for a pair, so no other file can be made with the same root by replacing blocks
+ * with the digests of pairs. An unpaired digest at the end of a level moves up unchanged.
+ * A file of one block (or an empty file) has the leaf digest as its root.
+ *<p>
+ * The usual (linear) digest of the whole file can be created at the same time with
+ * {@link #setLinearMethods(String...)}. A linear digest can not be split, so it is
+ * created by one task reading the file alongside the block tasks.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class TreeDigest {
+	/** The default size of a block. */
+	static public final long BLOCK_SIZE = 4L * 1024L * 1024L;
+
+	static final int READ_SIZE = 1024 * 1024;
+
+	// Direct buffer reused by each thread to read blocks
+	static private ThreadLocal<ByteBuffer> mBuffer = new ThreadLocal<ByteBuffer>() {
+		protected ByteBuffer initialValue() { return ByteBuffer.allocateDirect(READ_SIZE); }
+	};
+
+	String	mMethod;
+	long	mBlockSize = BLOCK_SIZE;
+	String[]	mLinearMethods = null;
+	ForkJoinPool	mPool = null;
+
+	String	mPathName = null;
+	byte[][]	mBlock = null;
+	byte[]	mRoot = null;
+	DigestResult	mLinear = null;
+	long	mBytes = 0;
+	long	mElapsed = 0;
+
+	/**
+	 * Create a tree digest for a digest method.
+	 *
+	 * @param method   the name of the digest method (i.e. "SHA-256").
+	 **/
+	public TreeDigest(String method)
+	{
+		mMethod = method;
+	}
+
+	/**
+	 * Set the size of each block.
+	 *
+	 * @param size   the size in bytes. The default is {@link #BLOCK_SIZE}.
+	 **/
+	public void setBlockSize(long size)
+	{
+		if(size < 1) throw new IllegalArgumentException("Block size must be positive");
+		mBlockSize = size;
+	}
+
+	/** @return the size of each block in bytes. */
+	public long getBlockSize() { return mBlockSize; }
+
+	/**
+	 * Set the methods for linear digests of the whole file to create along with the tree.
+	 *
+	 * @param methods   the names of the digest methods, or none for no linear digest.
+	 **/
+	public void setLinearMethods(String... methods)
+	{
+		if(methods != null && methods.length == 0) methods = null;
+		mLinearMethods = methods;
+	}
+
+	/**
+	 * Set the pool used to digest blocks. The default is the common {@link ForkJoinPool}.
+	 *
+	 * @param pool   the {@link ForkJoinPool} to run in.
+	 **/
+	public void setPool(ForkJoinPool pool)
+	{
+		mPool = pool;
+	}
+
+	/**
+	 * Digest a file.
+	 *
+	 * @param pathName   the path to the file.
+	 *
+	 * @return the root digest as a hexadecimal string.
+	 *
+	 * @throws Exception if a method is not supported or the file can not be read.
+	 **/
+	public String digestFile(String pathName)
+		throws Exception
+	{
+		MessageDigest.getInstance(mMethod);	// Fail early
+
+		ForkJoinPool pool = mPool;
+		if(pool == null) pool = ForkJoinPool.commonPool();
+
+		long start = System.nanoTime();
+		mPathName = pathName;
+		FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			long count = Math.max(1, (size + mBlockSize - 1) / mBlockSize);
+			if(count > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many blocks. Use a larger block size.");
+
+			ForkJoinTask<DigestResult> linear = null;
+			if(mLinearMethods != null) {
+				final String[] methods = mLinearMethods;
+				final String path = pathName;
+				linear = pool.submit(new Callable<DigestResult>() {
+					public DigestResult call() throws Exception { return Digest.readFile(methods, path); }
+				});
+			}
+
+			byte[][] block = new byte[(int) count][];
+			pool.invoke(new BlockTask(channel, block, size, 0, block.length));
+
+			mBlock = block;
+			mRoot = combine(block);
+			mBytes = size;
+			mLinear = (linear == null) ? null : linear.get();
+		} catch(java.util.concurrent.ExecutionException e) {
+			throw getCause(e);
+		} catch(RuntimeException e) {
+			throw getCause(e);
+		} finally {
+			channel.close();
+		}
+		mElapsed = System.nanoTime() - start;
+
+		return getRoot();
+	}
+
+	/**
+	 * Digest a range of blocks. Ranges are split until each task has one block.
+	 **/
+	@SuppressWarnings("serial")	// Never serialized
+	class BlockTask extends RecursiveAction {
+		FileChannel	mChannel;
+		byte[][]	mDigest;
+		long	mSize;
+		int	mStart;
+		int	mEnd;
+
+		BlockTask(FileChannel channel, byte[][] digest, long size, int start, int end)
+		{
+			mChannel = channel;
+			mDigest = digest;
+			mSize = size;
+			mStart = start;
+			mEnd = end;
+		}
+
+		protected void compute()
+		{
+			if(mEnd - mStart > 1) {
+				int middle = (mStart + mEnd) >>> 1;
+				invokeAll(new BlockTask(mChannel, mDigest, mSize, mStart, middle),
+				          new BlockTask(mChannel, mDigest, mSize, middle, mEnd));
+				return;
+			}
+
+			try {
+				mDigest[mStart] = digestBlock(mChannel, mStart, mSize);
+			} catch(Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Find the checked exception wrapped by a task, if any.
+	 **/
+	static private Exception getCause(Exception e)
+	{
+		Throwable cause = e;
+		while(cause != null) {
+			if(cause instanceof Exception && ! (cause instanceof RuntimeException)
+			   && ! (cause instanceof java.util.concurrent.ExecutionException)) return (Exception) cause;
+			cause = cause.getCause();
+		}
+		return e;
+	}
+
+	/**
+	 * Digest one block of a file with positional reads.
+	 **/
+	private byte[] digestBlock(FileChannel channel, int index, long size)
+		throws Exception
+	{
+		MessageDigest maker = MessageDigest.getInstance(mMethod);
+		ByteBuffer buffer = mBuffer.get();
+		long position = index * mBlockSize;
+		long end = Math.min(size, position + mBlockSize);
+		int n;
+
+		while(position < end) {
+			buffer.clear();
+			if(end - position < buffer.capacity()) buffer.limit((int) (end - position));
+			n = channel.read(buffer, position);
+			if(n == -1) throw new IOException("File is shorter than expected: " + mPathName);
+			position += n;
+			buffer.flip();
+			maker.update(buffer);
+		}
+
+		return maker.digest();
+	}
+
+	/**
+	 * Combine block digests into the root digest.
+	 **/
+	private byte[] combine(byte[][] block)
+		throws Exception
+	{
+		MessageDigest maker = MessageDigest.getInstance(mMethod);
+		byte[][] level = new byte[block.length][];
+
+		for(int i = 0; i < block.length; i++) {	// Leaves
+			maker.update((byte) 0x00);
+			maker.update(block[i]);
+			level[i] = maker.digest();
+		}
+
+		while(level.length > 1) {
+			byte[][] next = new byte[(level.length + 1) / 2][];
+			for(int i = 0; i < next.length; i++) {
+				if(i * 2 + 1 == level.length) { next[i] = level[i * 2]; continue; }	// Unpaired
+				maker.update((byte) 0x01);
+				maker.update(level[i * 2]);
+				maker.update(level[i * 2 + 1]);
+				next[i] = maker.digest();
+			}
+			level = next;
+		}
+
+		return level[0];
+	}
+
+	/**
+	 * Get the root digest.
+	 *
+	 * @return the root as a hexadecimal string or null if no file has been digested.
+	 **/
+	public String getRoot()
+	{
+		if(mRoot == null) return null;
+
+		return Digest.byteArrayToHexString(mRoot);
+	}
+
+	/**
+	 * Get the digest of each block.
+	 *
+	 * @return an array of hexadecimal strings in block order.
+	 **/
+	public String[] getBlockDigests()
+	{
+		if(mBlock == null) return new String[0];
+
+		String[] list = new String[mBlock.length];
+		for(int i = 0; i < list.length; i++) list[i] = Digest.byteArrayToHexString(mBlock[i]);
+
+		return list;
+	}
+
+	/** @return the number of blocks in the file. */
+	public int getBlockCount() { return mBlock == null ? 0 : mBlock.length; }
+
+	/**
+	 * Get the linear digests of the whole file.
+	 *
+	 * @return a {@link DigestResult} or null if no linear methods were set.
+	 **/
+	public DigestResult getLinear() { return mLinear; }
+
+	/** @return the number of bytes in the file. */
+	public long getBytes() { return mBytes; }
+
+	/** @return the time taken to digest the file in nanoseconds. */
+	public long getElapsed() { return mElapsed; }
+
+	/**
+	 * Find the blocks whose digests differ from a list of expected digests, for example from
+	 * the original of a copied or transferred file. Blocks missing from either list
+	 * are included. The comparison ignores case.
+	 *
+	 * @param expected   the expected block digests in block order.
+	 *
+	 * @return the indexes of the blocks which differ. The block at index <code>i</code>
+	 *         starts at byte <code>i * getBlockSize()</code>.
+	 **/
+	public int[] findDifferences(String[] expected)
+	{
+		String[] actual = getBlockDigests();
+		int count = Math.max(actual.length, expected.length);
+		ArrayList<Integer> list = new ArrayList<Integer>();
+
+		for(int i = 0; i < count; i++) {
+			if(i >= actual.length || i >= expected.length || ! actual[i].equalsIgnoreCase(expected[i])) list.add(i);
+		}
+
+		int[] index = new int[list.size()];
+		for(int i = 0; i < index.length; i++) index[i] = list.get(i);
+
+		return index;
+	}
+}
@@ -0,0 +1,257 @@
+package igpp.util;
+
+import java.io.IOException;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scan a directory tree with several folders listed at the same time. Each folder is
+ * a task on a {@link ForkJoinPool}, so idle threads take folders from busy ones
+ * (work stealing). This suits trees with very many folders on storage where each
+ * listing waits on the network, such as NFS or Lustre.
+ *<p>
+ * Entries are passed to a {@link DirectoryWalker.Visitor} as they are found, from
+ * several threads at once, so the visitor must be thread safe. The order of entries is
+ * not defined. Depth and hidden entries are handled as in {@link DirectoryWalker}
+ * and the scan ends soon after the visitor returns <code>false</code>.
+ *<p>
+ * The counters may be read while a scan is running to report progress.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class TreeScanner {
+	int	mThreads = 16;
+	int	mMaxDepth = Integer.MAX_VALUE;
+	int	mHidden = DirectoryWalker.HIDDEN_SKIP_FOLDERS;
+	boolean	mFiles = true;
+	boolean	mFolders = false;
+
+	volatile boolean	mStop = false;
+	AtomicLong	mDirectories = new AtomicLong();
+	AtomicLong	mEntries = new AtomicLong();
+	AtomicLong	mStats = new AtomicLong();
+	AtomicLong	mErrors = new AtomicLong();
+	long	mStart = 0;
+	long	mEnd = 0;
+
+	public TreeScanner()
+	{
+	}
+
+	/**
+	 * Set the number of folders listed at the same time. The default is 16 since
+	 * listing is usually limited by the wait for storage rather than the processor.
+	 *
+	 * @param threads   the number of threads.
+	 **/
+	public void setThreads(int threads)
+	{
+		if(threads < 1) throw new IllegalArgumentException("Thread count must be positive");
+		mThreads = threads;
+	}
+
+	/**
+	 * Set how deep the scan goes. A depth of 1 scans only the entries in the root folder.
+	 * The default is no limit.
+	 *
+	 * @param depth   the maximum depth.
+	 **/
+	public void setMaxDepth(int depth)
+	{
+		if(depth < 0) throw new IllegalArgumentException("Depth must not be negative");
+		mMaxDepth = depth;
+	}
+
+	/**
+	 * Set the rule for hidden entries (names starting with ".").
+	 *
+	 * @param rule   one of {@link DirectoryWalker#HIDDEN_INCLUDE}, {@link DirectoryWalker#HIDDEN_SKIP_FOLDERS}
+	 *               (the default) or {@link DirectoryWalker#HIDDEN_SKIP}.
+	 **/
+	public void setHidden(int rule)
+	{
+		if(rule < DirectoryWalker.HIDDEN_INCLUDE || rule > DirectoryWalker.HIDDEN_SKIP) throw new IllegalArgumentException("Unknown rule: " + rule);
+		mHidden = rule;
+	}
+
+	/**
+	 * Set whether files are passed to the visitor. The default is <code>true</code>.
+	 *
+	 * @param files   <code>true</code> to visit files.
+	 **/
+	public void setFiles(boolean files) { mFiles = files; }
+
+	/**
+	 * Set whether folders are passed to the visitor. The root is not visited.
+	 * The default is <code>false</code>.
+	 *
+	 * @param folders   <code>true</code> to visit folders.
+	 **/
+	public void setFolders(boolean folders) { mFolders = folders; }
+
+	/**
+	 * Scan a tree. Symbolic links are not followed.
+	 *
+	 * @param pathName   the path to the root of the tree.
+	 * @param visitor    the thread safe {@link DirectoryWalker.Visitor} to receive each entry.
+	 *
+	 * @return <code>true</code> if the scan completed, <code>false</code> if the visitor stopped it.
+	 *
+	 * @throws IOException if the root is not a folder.
+	 **/
+	public boolean scan(String pathName, DirectoryWalker.Visitor visitor)
+		throws IOException
+	{
+		Path root = Paths.get(pathName);
+		if( ! Files.isDirectory(root)) throw new IOException("Not a directory: " + pathName);
+
+		mStop = false;
+		mDirectories.set(0);
+		mEntries.set(0);
+		mStats.set(0);
+		mErrors.set(0);
+		mStart = System.nanoTime();
+		mEnd = 0;
+
+		ForkJoinPool pool = new ForkJoinPool(mThreads);
+		try {
+			if(mMaxDepth > 0) pool.invoke(new FolderTask(root, 1, visitor));
+		} finally {
+			pool.shutdown();
+			mEnd = System.nanoTime();
+		}
+
+		return ! mStop;
+	}
+
+	/**
+	 * List one folder, pass its entries to the visitor and scan its sub-folders as new tasks.
+	 **/
+	@SuppressWarnings("serial")	// Never serialized
+	class FolderTask extends RecursiveAction {
+		Path	mFolder;
+		int	mDepth;	// Depth of the entries in the folder
+		DirectoryWalker.Visitor	mVisitor;
+
+		FolderTask(Path folder, int depth, DirectoryWalker.Visitor visitor)
+		{
+			mFolder = folder;
+			mDepth = depth;
+			mVisitor = visitor;
+		}
+
+		protected void compute()
+		{
+			ArrayList<FolderTask> sub = new ArrayList<FolderTask>();
+
+			try {
+				DirectoryStream<Path> stream = Files.newDirectoryStream(mFolder);
+				try {
+					mDirectories.incrementAndGet();
+					for(Path path : stream) {
+						if(mStop) break;
+						mEntries.incrementAndGet();
+
+						boolean hidden = path.getFileName().toString().startsWith(".");
+						if(hidden && mHidden == DirectoryWalker.HIDDEN_SKIP) continue;
+
+						BasicFileAttributes attributes;
+						try {
+							mStats.incrementAndGet();
+							attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+						} catch(IOException e) {
+							mErrors.incrementAndGet();
+							continue;
+						}
+
+						if(attributes.isDirectory()) {
+							if(hidden && mHidden != DirectoryWalker.HIDDEN_INCLUDE) continue;
+							if(mFolders) visit(path, attributes);
+							if(mDepth < mMaxDepth) {
+								FolderTask task = new FolderTask(path, mDepth + 1, mVisitor);
+								task.fork();
+								sub.add(task);
+							}
+						} else if(mFiles) {
+							visit(path, attributes);
+						}
+					}
+				} finally {
+					stream.close();
+				}
+			} catch(IOException e) {
+				mErrors.incrementAndGet();
+			}
+
+			for(FolderTask task : sub) task.join();
+		}
+
+		private void visit(Path path, BasicFileAttributes attributes)
+		{
+			if(mStop) return;
+			if( ! mVisitor.visit(path, attributes)) mStop = true;
+		}
+	}
+
+	/** @return the number of folders listed. */
+	public long getDirectoryCount() { return mDirectories.get(); }
+
+	/** @return the number of entries read from folders. */
+	public long getEntryCount() { return mEntries.get(); }
+
+	/** @return the number of times the attributes of an entry were read. */
+	public long getStatCount() { return mStats.get(); }
+
+	/** @return the number of folders or entries which could not be read. */
+	public long getErrorCount() { return mErrors.get(); }
+
+	/**
+	 * Get the time spent scanning. While running this is the time so far.
+	 *
+	 * @return the elapsed time in nanoseconds.
+	 **/
+	public long getElapsed()
+	{
+		if(mStart == 0) return 0;
+		if(mEnd == 0) return System.nanoTime() - mStart;
+
+		return mEnd - mStart;
+	}
+
+	/**
+	 * Get the rate folders have been listed.
+	 *
+	 * @return the number of folders per second.
+	 **/
+	public double getDirectoryRate()
+	{
+		long elapsed = getElapsed();
+		if(elapsed <= 0) return 0.0;
+
+		return getDirectoryCount() * 1.0e9 / elapsed;
+	}
+
+	/**
+	 * Get the rate attributes of entries have been read.
+	 *
+	 * @return the number of stat calls per second.
+	 **/
+	public double getStatRate()
+	{
+		long elapsed = getElapsed();
+		if(elapsed <= 0) return 0.0;
+
+		return getStatCount() * 1.0e9 / elapsed;
+	}
+}
@@ -1,10 +1,22 @@
 package igpp.util;
 
+import java.io.IOException;
+import java.io.Writer;
+
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 
 /** 
  * VariableList manages one or more PPIVariable object.
+ * Variables are kept in the order they are added, with an index by name
+ * so that finding a variable does not search the list. Variables may still be added,
+ * removed or replaced directly in {@link #mVariable}, since the list counts its changes
+ * and the index is rebuilt when next used. A variable should not be renamed directly;
+ * remove it and add it with the new name. If {@link #mVariable} is replaced with another
+ * list, only changes in the size of that list are noticed.
+ * Looking up values does not change the list, so several threads may read
+ * the same list at once.
  *
  * @author      Todd King
  * @author      Planetary Data System
@@ -13,7 +25,10 @@ import java.util.Iterator;
  */
 public class VariableList {
 	/** The list of elements in the label */
- 	public ArrayList		mVariable = new ArrayList();
+ 	public ArrayList		mVariable = new Changes();
+ 	
+ 	/** The position of the first variable with each name */
+ 	private volatile Index	mIndex = null;
  	
     /** 
      * Creates an instance of a variable.
@@ -32,6 +47,7 @@ public class VariableList {
 	public void clear() 
 	{
 		mVariable.clear();
+		mIndex = null;
 	}
 	
 	/** 
@@ -63,8 +79,13 @@ public class VariableList {
      */
 	public boolean findAndSet(VariableList list) 
 	{
-		Iterator it = list.iterator();
-		while(it.hasNext()) findAndSet((Variable) it.next());
+		Variable	variable;
+		
+		mVariable.ensureCapacity(mVariable.size() + list.size());
+		for(int i = 0; i < list.mVariable.size(); i++) {
+			variable = (Variable) list.mVariable.get(i);
+			findAndSet(variable.mName, variable.mValue);
+		}
 		return true;
 	}
 	
@@ -114,19 +135,213 @@ public class VariableList {
 		if(resolve) value = replaceVariable(value, false);
 		
 		// Search for variable
-		for(int i = 0; i < mVariable.size(); i++) {
-			variable = (Variable) mVariable.get(i);
-			if(variable.mName.compareTo(name) == 0) {
-				variable.mValue = value;
-				return true;
-			}
+		variable = find(name);
+		if(variable != null) {
+			variable.mValue = value;
+			return true;
 		}
 		
 		// If we reach here we need to define the variable
-		mVariable.add(new Variable(name, value));
+		add(new Variable(name, value));
 		return true;	
 	}
 	
+    /** 
+     * Copies every variable in a list into this list. Values are copied
+     * as they are, without the clean-up and replacement done by {@link #findAndSet(String, String)}.
+	 * 
+     * @param list		the VariableList of variables to copy.
+     * @param replace	if <code>true</code> the value of a variable already in this list
+     *					is replaced; if <code>false</code> it is kept.
+     *
+     * @return          the number of variables added or changed.
+     */
+	public int merge(VariableList list, boolean replace) 
+	{
+		Variable	variable;
+		Variable	found;
+		int		count = 0;
+		
+		mVariable.ensureCapacity(mVariable.size() + list.size());
+		for(int i = 0; i < list.mVariable.size(); i++) {
+			variable = (Variable) list.mVariable.get(i);
+			found = find(variable.mName);
+			if(found == null) {
+				add(new Variable(variable.mName, variable.mValue));
+				count++;
+			} else if(replace) {
+				found.mValue = variable.mValue;
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+    /** 
+     * Removes a variable from the list.
+	 * 
+     * @param name		the name of the variable to remove.
+     *
+     * @return          <code>true</code> if the variable was removed;
+     *                  <code>false</code> if it was not in the list.
+     */
+	public boolean remove(String name) 
+	{
+		Variable variable = find(name);
+		if(variable == null) return false;
+		
+		for(int i = 0; i < mVariable.size(); i++) {
+			if(mVariable.get(i) == variable) { mVariable.remove(i); break; }
+		}
+		mIndex = null;	// Positions have changed
+		
+		return true;
+	}
+	
+    /** 
+     * Creates a copy of the list. Changes to the copy, or to its variables,
+     * do not change this list.
+	 * 
+     * @return          the copy.
+     */
+	public VariableList snapshot() 
+	{
+		Variable	variable;
+		VariableList	copy = new VariableList();
+		
+		copy.mVariable.ensureCapacity(mVariable.size());
+		for(int i = 0; i < mVariable.size(); i++) {
+			variable = (Variable) mVariable.get(i);
+			copy.add(new Variable(variable.mName, variable.mValue));
+		}
+		
+		return copy;
+	}
+	
+    /** 
+     * Determines if a variable is in the list.
+	 * 
+     * @param name		the name of the variable.
+     *
+     * @return          <code>true</code> if the variable is in the list.
+     */
+	public boolean contains(String name) 
+	{
+		return find(name) != null;
+	}
+	
+    /** 
+     * Returns the number of variables in the list.
+	 * 
+     * @return          the number of variables.
+     */
+	public int size() 
+	{
+		return mVariable.size();
+	}
+	
+    /** 
+     * Finds the first variable with a name. A variable found in the index is checked
+     * against the list, so a variable renamed since it was indexed is not returned.
+     */
+	private Variable find(String name) 
+	{
+		Index index = current();
+		Integer	position = index.mPosition.get(name);
+		if(position == null) return null;
+		
+		Variable variable = (Variable) mVariable.get(position);
+		if(name.equals(variable.mName)) return variable;
+		
+		// Renamed directly
+		index = new Index(mVariable);
+		mIndex = index;
+		position = index.mPosition.get(name);
+		
+		return (position == null) ? null : (Variable) mVariable.get(position);
+	}
+	
+    /** 
+     * Returns the index, building it if the list has been replaced or changed since indexed.
+     * Readers only ever replace the index with a new one, so several may do so at once.
+     */
+	private Index current() 
+	{
+		Index index = mIndex;
+		if(index == null || ! index.matches(mVariable)) {
+			index = new Index(mVariable);
+			mIndex = index;
+		}
+		return index;
+	}
+	
+    /** 
+     * Adds a variable to the end of the list and the index.
+     */
+	private void add(Variable variable) 
+	{
+		Index index = mIndex;
+		boolean indexed = (index != null && index.matches(mVariable));
+		mVariable.add(variable);
+		if(indexed) index.add(variable, getStamp(mVariable));
+	}
+	
+    /** 
+     * Returns the number of changes made to a list, or -1 if they are not counted.
+     */
+	static private long getStamp(ArrayList<?> list) 
+	{
+		return (list instanceof Changes) ? ((Changes) list).getStamp() : -1;
+	}
+	
+	/**
+	 * A list which counts every change, including variables replaced in place.
+	 */
+	@SuppressWarnings("serial")	// Never serialized
+	static private class Changes extends ArrayList<Object> {
+		public Object set(int index, Object element)
+		{
+			modCount++;
+			return super.set(index, element);
+		}
+		
+		long getStamp() { return modCount; }
+	}
+	
+	/**
+	 * The position of the first variable with each name, and the state of the list when it was indexed.
+	 */
+	static private class Index {
+		ArrayList<?>	mList;
+		int	mSize = 0;
+		long	mStamp;
+		HashMap<String, Integer>	mPosition;
+		
+		Index(ArrayList<?> list)
+		{
+			int n = list.size();
+			mList = list;
+			mStamp = getStamp(list);
+			mPosition = new HashMap<String, Integer>(Math.max(16, n * 2));
+			for(int i = 0; i < n; i++) add((Variable) list.get(i), mStamp);
+		}
+		
+		/** Adds a variable at the end. Only called by the thread changing the list. */
+		void add(Variable variable, long stamp)
+		{
+			if( ! mPosition.containsKey(variable.mName)) mPosition.put(variable.mName, mSize);
+			mSize++;
+			mStamp = stamp;
+		}
+		
+		/** Determines if a list is the one indexed and has not changed since. */
+		boolean matches(ArrayList<?> list)
+		{
+			return list == mList && list.size() == mSize && getStamp(list) == mStamp;
+		}
+	}
+	
     /** 
      * Finds a variable in the variable list and returns its value.
      * If the variable does not exist null is returned.
@@ -167,12 +382,8 @@ public class VariableList {
 	{
 		Variable		variable;
 		
-		for(int i = 0; i < mVariable.size(); i++) {
-			variable = (Variable) mVariable.get(i);
-			if(variable.mName.compareTo(name) == 0) {
-				return variable.mValue;
-			}
-		}
+		variable = find(name);
+		if(variable != null) return variable.mValue;
 		
 		if(blank) return "";
 		
@@ -254,38 +465,51 @@ public class VariableList {
      * @since           1.0
      */
 	public String replaceVariable(String buffer, boolean plain) {
-		String 	output = "";
-		String	name;
-		String	value;
-		int		start = 0;
-		int		i, n;
-		int		len;
-		char	c;
-		
 		if(buffer == null) return buffer;
-		len = buffer.length();
+		if(buffer.indexOf('$') == -1) return buffer;
 		
-		while((n = buffer.indexOf('$', start)) != -1) {
-			if(n > start) output += buffer.substring(start, n);
-			n++;
-			name = "";
-			while(n < len) {	// Get variable name
-				c = (char) buffer.charAt(n);
-				if(!Character.isLetterOrDigit(c) && c != '_') break;
-				name += c;
-				n++;
-			}
-			// Find variable - if not found in variable list - check option list
-			value = getValue(name, true);
-			if(!plain) {	// Escape the quotation marks
-			   value = value.replaceAll("\"", "\\\"");
-			}
-			output += value;
-			start = n;
+		// Values are unadorned either way since the escape used before, 
+		// replaceAll("\"", "\\\""), replaced each quotation mark with itself.
+		return Template.compile(buffer).render(this);
+	}
+	
+    /** 
+     * Searches the passed string for variables and writes the string 
+     * with each variable replaced with its current value. 
+     * The result is not built in memory, so this suits large strings.
+     * Variables are as described for {@link #replaceVariable(String)}.
+     *
+     * @param buffer	the string to search for variables.
+     * @param writer	the {@link Writer} for the result.
+	 * 
+     * @throws IOException	if the writer fails.
+     */
+	public void replaceVariable(String buffer, Writer writer) 
+		throws IOException
+	{
+		if(buffer == null) return;
+		Template.compile(buffer).render(this, writer);
+	}
+	
+    /** 
+     * Finds several variables in the variable list and returns their values.
+	 * 
+     * @param name		the names of the variables.
+     *
+     * @return          the value of each variable, in the order of the names.
+     *					The value is a blank string if the variable does not exist.
+     */
+	public String[] getValues(String[] name) 
+	{
+		String[]	value = new String[name.length];
+		Variable	variable;
+		
+		for(int i = 0; i < name.length; i++) {
+			variable = find(name[i]);
+			value[i] = (variable == null) ? "" : variable.mValue;
 		}
-		if(start < len) output += buffer.substring(start, len);
 		
-		return output;
+		return value;
 	}
 		
     /** 
@@ -0,0 +1,197 @@
+package igpp.util;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Checks for {@link ProcessPool} using "cat" and a shell loop as workers, so it needs a Unix shell.
+ * Run from the top of the project with:
+ *<pre>
+ *   javac -d /tmp/igpp-test -cp lib/commons-cli-1.1.jar src/igpp/util/*.java test/igpp/util/ProcessPoolTest.java
+ *   java -cp /tmp/igpp-test igpp.util.ProcessPoolTest
+ *</pre>
+ * Each check prints its result and the program exits with a status of 1 if any check fails.
+ *
+ * @author Todd King
+ * @version 1.00 2026
+ **/
+public class ProcessPoolTest {
+	/** A worker which answers each line after a short wait and exits when sent "die". */
+	static final String SLOW_WORKER = "sh -c \"while read l; do if [ \\\"$l\\\" = die ]; then exit 1; fi; sleep 0.2; echo R:$l; done\"";
+
+	static int mFailed = 0;
+
+	public static void main(String[] args)
+		throws Exception
+	{
+		testLines();
+		testCancel();
+		testRestart();
+		testLengthFraming();
+		testLargeBatch();
+		testFailingError();
+
+		System.out.println(mFailed == 0 ? "All checks passed" : mFailed + " checks failed");
+		System.exit(mFailed == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Responses come back in order from several workers.
+	 **/
+	static void testLines()
+		throws Exception
+	{
+		ProcessPool pool = new ProcessPool("cat", 3);
+		try {
+			ArrayList<String> request = new ArrayList<String>();
+			for(int i = 0; i < 1000; i++) request.add("line " + i);
+			ArrayList<CompletableFuture<String>> response = pool.submitAll(request);
+			int bad = 0;
+			for(int i = 0; i < response.size(); i++) {
+				if( ! response.get(i).get(10, TimeUnit.SECONDS).equals("line " + i)) bad++;
+			}
+			check(bad == 0, "line responses match requests");
+			check(pool.getRequestCount() == 1000, "request count is 1000");
+		} finally {
+			pool.close();
+		}
+	}
+
+	/**
+	 * A request cancelled after it was written does not shift the responses of later requests.
+	 **/
+	static void testCancel()
+		throws Exception
+	{
+		ProcessPool pool = new ProcessPool(SLOW_WORKER, 1);
+		try {
+			CompletableFuture<String> a = pool.submit("a");
+			CompletableFuture<String> b = pool.submit("b");
+			CompletableFuture<String> c = pool.submit("c");
+			Thread.sleep(100);	// Let the worker take the batch
+			b.cancel(true);
+
+			check(a.get(10, TimeUnit.SECONDS).equals("R:a"), "response before the cancelled request");
+			check(b.isCancelled(), "cancelled request stays cancelled");
+			check(c.get(10, TimeUnit.SECONDS).equals("R:c"), "response after the cancelled request");
+			check(pool.call("d").equals("R:d"), "next request gets its own response");
+
+			CompletableFuture<String> e = pool.submit("e");
+			CompletableFuture<String> f = pool.submit("f");
+			f.cancel(true);	// Likely cancelled while still queued
+			check(e.get(10, TimeUnit.SECONDS).equals("R:e"), "response with a request cancelled while queued");
+			check(pool.call("g").equals("R:g"), "request after one cancelled while queued");
+		} finally {
+			pool.close();
+		}
+	}
+
+	/**
+	 * A worker which exits fails the requests it holds and is started again.
+	 **/
+	static void testRestart()
+		throws Exception
+	{
+		ProcessPool pool = new ProcessPool(SLOW_WORKER, 1);
+		try {
+			check(pool.call("one").equals("R:one"), "response before the crash");
+			try {
+				pool.call("die");
+				check(false, "request to a crashed worker fails");
+			} catch(IOException e) {
+				check(true, "request to a crashed worker fails");
+			}
+			check(pool.call("two").equals("R:two"), "response after the restart");
+
+			ProcessPool.Worker worker = pool.getWorkers()[0];
+			check(worker.getRestartCount() == 1, "restart count is 1");
+			check(worker.getErrorCount() == 1, "error count is 1");
+		} finally {
+			pool.close();
+		}
+	}
+
+	/**
+	 * Messages with line breaks pass through length framing unchanged.
+	 **/
+	static void testLengthFraming()
+		throws Exception
+	{
+		ProcessPool pool = new ProcessPool("cat", 2);
+		pool.setFraming(ProcessPool.FRAME_LENGTH);
+		try {
+			String message = "first line\nsecond line\r\n\u00e9t\u00e9\n";
+			check(pool.call(message).equals(message), "multi-line message with length framing");
+			check(pool.call("").equals(""), "empty message with length framing");
+		} finally {
+			pool.close();
+		}
+	}
+
+	/**
+	 * A batch larger than the pipes can hold does not stall.
+	 **/
+	static void testLargeBatch()
+		throws Exception
+	{
+		ProcessPool pool = new ProcessPool("cat", 1);
+		pool.setFraming(ProcessPool.FRAME_LENGTH);
+		try {
+			StringBuilder buffer = new StringBuilder();
+			for(int i = 0; i < 200000; i++) buffer.append((char) ('a' + i % 26));
+			String message = buffer.toString();
+
+			ArrayList<String> request = new ArrayList<String>();
+			for(int i = 0; i < 16; i++) request.add(i + message);
+			ArrayList<CompletableFuture<String>> response = pool.submitAll(request);
+			int bad = 0;
+			for(int i = 0; i < response.size(); i++) {
+				try {
+					if( ! response.get(i).get(30, TimeUnit.SECONDS).equals(i + message)) bad++;
+				} catch(ExecutionException e) {
+					bad++;
+				}
+			}
+			check(bad == 0, "large batch with length framing");
+		} finally {
+			pool.close();
+		}
+	}
+
+	/**
+	 * A consumer of standard error which fails does not stop the error output being read.
+	 **/
+	static void testFailingError()
+		throws Exception
+	{
+		ProcessPool pool = new ProcessPool("sh -c \"while read l; do seq 1 2000 >&2; echo R:$l; done\"", 1);
+		pool.setError(new Consumer<String>() {
+			public void accept(String line) { throw new IllegalStateException("Consumer failed"); }
+		});
+		try {
+			int bad = 0;
+			for(int i = 0; i < 50; i++) {
+				try {
+					if( ! pool.submit("" + i).get(10, TimeUnit.SECONDS).equals("R:" + i)) bad++;
+				} catch(Exception e) {
+					bad++;
+					break;
+				}
+			}
+			check(bad == 0, "error output read after its consumer fails");
+		} finally {
+			pool.close();
+		}
+	}
+
+	static void check(boolean passed, String name)
+	{
+		System.out.println((passed ? "PASS " : "FAIL ") + name);
+		if( ! passed) mFailed++;
+	}
+}